@@ -0,0 +1,36 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import com.openclassrooms.starterjwt.repository.projection.CollectionVersion;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Strong ETags for reads. Responses carrying one are sent with
+ * {@code Cache-Control: no-cache}, so clients keep them and revalidate with
+ * {@code If-None-Match} instead of Spring Security's default {@code no-store}.
+ */
+final class ETags {
+    private ETags() {
+    }
+
+    static String of(String resource, Object... parts) {
+        StringBuilder etag = new StringBuilder("\"").append(resource);
+        for (Object part : parts) {
+            etag.append('-').append(part);
+        }
+        return etag.append('"').toString();
+    }
+
+    static String of(String resource, CollectionVersion version) {
+        return of(resource, version.getCount(), version.getMaxId(), version.getLastChange());
+    }
+
+    static ResponseEntity.BodyBuilder ok(String etag) {
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache());
+    }
+
+    static ResponseEntity<?> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(CacheControl.noCache()).build();
+    }
+}
@@ -2,14 +2,31 @@ package com.openclassrooms.starterjwt.controllers;
 
 
 import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.instrumentation.SqlBudget;
 import com.openclassrooms.starterjwt.mapper.SessionMapper;
 import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.payload.response.MessageResponse;
+import com.openclassrooms.starterjwt.payload.response.SessionImportResponse;
+import com.openclassrooms.starterjwt.repository.projection.SessionSummary;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import com.openclassrooms.starterjwt.services.ParticipationStatus;
+import com.openclassrooms.starterjwt.services.SessionExporter;
+import com.openclassrooms.starterjwt.services.SessionImporter;
 import com.openclassrooms.starterjwt.services.SessionService;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Date;
 import java.util.List;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
@@ -17,26 +34,44 @@ import java.util.List;
 @RequestMapping("/api/session")
 @Log4j2
 public class SessionController {
+    static final int MAX_PAGE_SIZE = 100;
+
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final SessionMapper sessionMapper;
     private final SessionService sessionService;
+    private final SessionImporter sessionImporter;
+    private final SessionExporter sessionExporter;
 
 
     public SessionController(SessionService sessionService,
-                             SessionMapper sessionMapper) {
+                             SessionMapper sessionMapper,
+                             SessionImporter sessionImporter,
+                             SessionExporter sessionExporter) {
         this.sessionMapper = sessionMapper;
         this.sessionService = sessionService;
+        this.sessionImporter = sessionImporter;
+        this.sessionExporter = sessionExporter;
     }
 
+    /**
+     * Answers 304 when the {@code If-None-Match} ETag still matches the
+     * session version.
+     */
     @GetMapping("/{id}")
-    public ResponseEntity<?> findById(@PathVariable("id") String id) {
+    public ResponseEntity<?> findById(@PathVariable("id") String id, WebRequest request) {
         try {
-            Session session = this.sessionService.getById(Long.valueOf(id));
+            SessionSummary session = this.sessionService.findSummary(Long.valueOf(id));
 
             if (session == null) {
                 return ResponseEntity.notFound().build();
             }
 
-            return ResponseEntity.ok().body(this.sessionMapper.toDto(session));
+            String etag = ETags.of("session", session.getId(), session.getVersion());
+            if (request.checkNotModified(etag)) {
+                return ETags.notModified(etag);
+            }
+            return ETags.ok(etag).body(this.sessionMapper.toDto(session));
         } catch (NumberFormatException e) {
             return ResponseEntity.badRequest().build();
         }
@@ -47,11 +82,76 @@ public class SessionController {
 //                        .content(sessionJacksonTester.write(session).getJson()))
 //            .andExpect(status().isUnauthorized()).andReturn();
 
+    /**
+     * The ETag is derived from the count, highest id and a digest of the ids
+     * and versions of the sessions, so an unchanged list is answered with 304
+     * without serializing it. Two statements when the catalogue is rebuilt,
+     * plus one when the caller's user details are not cached.
+     */
     @GetMapping()
-    public ResponseEntity<?> findAll() {
-        List<Session> sessions = this.sessionService.findAll();
+    @SqlBudget(statements = 3)
+    public ResponseEntity<?> findAll(WebRequest request) {
+        String etag = ETags.of("sessions", this.sessionService.getCollectionVersion());
+        if (request.checkNotModified(etag)) {
+            return ETags.notModified(etag);
+        }
+
+        List<SessionSummary> sessions = this.sessionService.findAll();
+
+        return ETags.ok(etag).body(this.sessionMapper.summariesToDto(sessions));
+    }
+
+    /**
+     * Streams every session, one JSON object per line, in date then id order.
+     * Unlike {@link #findAll(WebRequest)}, the sessions are never all in memory at once.
+     */
+    @GetMapping("/export")
+    public void export(HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+
+        long count = this.sessionExporter.export(response.getOutputStream());
+
+        log.info("Exported {} sessions", count);
+    }
+
+    /**
+     * Pages through sessions ordered by date then id. Pass {@code page} for
+     * offset paging, or the {@value #NEXT_CURSOR_HEADER} header of the previous
+     * response as {@code after} for keyset paging. The header is only set when
+     * the page is full.
+     */
+    @GetMapping(params = "size")
+    public ResponseEntity<?> findPage(@RequestParam("size") String size,
+                                      @RequestParam(value = "page", required = false) String page,
+                                      @RequestParam(value = "after", required = false) String after) {
+        try {
+            int pageSize = Integer.parseInt(size);
+            int pageNumber = page != null ? Integer.parseInt(page) : 0;
+            if (pageSize < 1 || pageSize > MAX_PAGE_SIZE || pageNumber < 0) {
+                return ResponseEntity.badRequest().build();
+            }
+
+            List<SessionSummary> sessions;
+            if (after != null) {
+                String[] cursor = after.split("_", 2);
+                if (cursor.length != 2) {
+                    return ResponseEntity.badRequest().build();
+                }
+                sessions = this.sessionService.findAfter(new Date(Long.parseLong(cursor[0])), Long.valueOf(cursor[1]), pageSize);
+            } else {
+                sessions = this.sessionService.findPage(pageNumber, pageSize);
+            }
 
-        return ResponseEntity.ok().body(this.sessionMapper.toDto(sessions));
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (sessions.size() == pageSize) {
+                SessionSummary last = sessions.get(sessions.size() - 1);
+                response.header(NEXT_CURSOR_HEADER, last.getDate().getTime() + "_" + last.getId());
+            }
+            return response.body(this.sessionMapper.summariesToDto(sessions));
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     @PostMapping()
@@ -64,6 +164,23 @@ public class SessionController {
         return ResponseEntity.ok().body(this.sessionMapper.toDto(session));
     }
 
+    /**
+     * Creates many sessions in one request, from a JSON array of sessions or
+     * from one session per line. Admins only. Invalid items are skipped and
+     * listed by index in the response; the others are imported.
+     */
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<?> importSessions(InputStream body) throws IOException {
+        if (!isAdmin()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        SessionImportResponse response = this.sessionImporter.importSessions(body);
+
+        log.info("Imported {} sessions, rejected {}", response.getImported(), response.getErrors().size());
+        return ResponseEntity.ok().body(response);
+    }
+
     @PutMapping("{id}")
     public ResponseEntity<?> update(@PathVariable("id") String id, @Valid @RequestBody SessionDto sessionDto) {
         try {
@@ -91,11 +208,21 @@ public class SessionController {
         }
     }
 
+    /**
+     * Answers 200 when the user got a seat, or 202 when the session is full
+     * and the user was put on its waitlist. Seven statements for the sign-up,
+     * plus two to reload the session into the catalogue and one when the
+     * caller's user details are not cached.
+     */
     @PostMapping("{id}/participate/{userId}")
+    @SqlBudget(statements = 10)
     public ResponseEntity<?> participate(@PathVariable("id") String id, @PathVariable("userId") String userId) {
         try {
-            this.sessionService.participate(Long.parseLong(id), Long.parseLong(userId));
+            ParticipationStatus status = this.sessionService.participate(Long.parseLong(id), Long.parseLong(userId));
 
+            if (status == ParticipationStatus.WAITLISTED) {
+                return ResponseEntity.accepted().body(new MessageResponse("Session is full, you have been added to the waitlist"));
+            }
             return ResponseEntity.ok().build();
         } catch (NumberFormatException e) {
             return ResponseEntity.badRequest().build();
@@ -112,4 +239,11 @@ public class SessionController {
             return ResponseEntity.badRequest().build();
         }
     }
+
+    private boolean isAdmin() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null
+                && authentication.getPrincipal() instanceof UserDetailsImpl
+                && Boolean.TRUE.equals(((UserDetailsImpl) authentication.getPrincipal()).getAdmin());
+    }
 }
@@ -0,0 +1,41 @@
+package com.openclassrooms.starterjwt.instrumentation;
+
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.boot.actuate.metrics.web.servlet.WebMvcTagsContributor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Adds {@code controller} and {@code handler} tags to
+ * {@code http.server.requests}, next to the {@code uri} template, so latency
+ * and errors can be grouped by controller, e.g.
+ * {@code controller="SessionController", handler="participate"}.
+ */
+@Component
+public class ControllerTagsContributor implements WebMvcTagsContributor {
+    private static final Tags NO_HANDLER = Tags.of(Tag.of("controller", "none"), Tag.of("handler", "none"));
+
+    @Override
+    public Iterable<Tag> getTags(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                 Throwable exception) {
+        return tags(handler);
+    }
+
+    @Override
+    public Iterable<Tag> getLongRequestTags(HttpServletRequest request, Object handler) {
+        return tags(handler);
+    }
+
+    private static Tags tags(Object handler) {
+        if (!(handler instanceof HandlerMethod)) {
+            return NO_HANDLER;
+        }
+        HandlerMethod handlerMethod = (HandlerMethod) handler;
+        return Tags.of(Tag.of("controller", handlerMethod.getBeanType().getSimpleName()),
+                Tag.of("handler", handlerMethod.getMethod().getName()));
+    }
+}
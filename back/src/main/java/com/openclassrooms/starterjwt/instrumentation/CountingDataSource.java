@@ -0,0 +1,112 @@
+package com.openclassrooms.starterjwt.instrumentation;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+
+/**
+ * Reports every statement executed through the target data source, and every
+ * row read from its result sets, to the {@link SqlStatementCounter} of the
+ * calling thread. A batch counts as one statement: it is one round trip.
+ * Costs one {@code ThreadLocal} read per call when nothing is counting.
+ */
+public class CountingDataSource extends DelegatingDataSource {
+    private static final Set<String> EXECUTE_METHODS = Set.of(
+            "execute", "executeQuery", "executeUpdate", "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+
+    private static final Set<String> RESULT_SET_METHODS = Set.of("executeQuery", "getResultSet", "getGeneratedKeys");
+
+    public CountingDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return proxy(Connection.class, super.getConnection(), null);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return proxy(Connection.class, super.getConnection(username, password), null);
+    }
+
+    private static <T> T proxy(Class<T> type, T target, String sql) {
+        return type.cast(Proxy.newProxyInstance(CountingDataSource.class.getClassLoader(),
+                new Class<?>[]{type}, new CountingHandler(target, sql)));
+    }
+
+    private static final class CountingHandler implements InvocationHandler {
+        private final Object target;
+
+        /** SQL of a prepared statement, null otherwise. */
+        private final String sql;
+
+        CountingHandler(Object target, String sql) {
+            this.target = target;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if ("equals".equals(name) && method.getParameterCount() == 1) {
+                return proxy == args[0];
+            }
+            if ("hashCode".equals(name) && method.getParameterCount() == 0) {
+                return System.identityHashCode(proxy);
+            }
+
+            Object result;
+            try {
+                result = method.invoke(this.target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+
+            if (this.target instanceof ResultSet) {
+                if ("next".equals(name) && Boolean.TRUE.equals(result)) {
+                    SqlStatementCounter counter = SqlStatementCounter.current();
+                    if (counter != null) {
+                        counter.rowRead();
+                    }
+                }
+                return result;
+            }
+
+            if (this.target instanceof Connection) {
+                switch (name) {
+                    case "prepareCall":
+                        return proxy(CallableStatement.class, (CallableStatement) result, (String) args[0]);
+                    case "prepareStatement":
+                        return proxy(PreparedStatement.class, (PreparedStatement) result, (String) args[0]);
+                    case "createStatement":
+                        return proxy(Statement.class, (Statement) result, null);
+                    default:
+                        return result;
+                }
+            }
+
+            if (EXECUTE_METHODS.contains(name)) {
+                SqlStatementCounter counter = SqlStatementCounter.current();
+                if (counter != null) {
+                    counter.statementExecuted(this.sql != null ? this.sql : args != null && args.length > 0 ? (String) args[0] : null);
+                }
+            }
+            if (result instanceof ResultSet && RESULT_SET_METHODS.contains(name)) {
+                return proxy(ResultSet.class, (ResultSet) result, null);
+            }
+            return result;
+        }
+    }
+}
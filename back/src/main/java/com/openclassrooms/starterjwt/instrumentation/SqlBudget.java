@@ -0,0 +1,23 @@
+package com.openclassrooms.starterjwt.instrumentation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Most JDBC statements, and rows read, that one request to this handler
+ * method may cost, filters included. Exceeding it is logged and counted;
+ * with {@code oc.app.sqlBudgetEnforce=true} the request fails with a
+ * {@link SqlBudgetExceededException}, which is how tests catch N+1
+ * regressions.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface SqlBudget {
+    int statements();
+
+    int rows() default Integer.MAX_VALUE;
+}
@@ -0,0 +1,51 @@
+package com.openclassrooms.starterjwt.instrumentation;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+
+/**
+ * Counts the SQL of every request: wraps the data source in a
+ * {@link CountingDataSource}, and registers {@link SqlBudgetFilter} ahead of
+ * the security filters, whose user lookups are part of the request's cost.
+ */
+@Configuration
+public class SqlBudgetConfig implements WebMvcConfigurer {
+
+    @Bean
+    public static BeanPostProcessor countingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource && !(bean instanceof CountingDataSource)) {
+                    return new CountingDataSource((DataSource) bean);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public FilterRegistrationBean<SqlBudgetFilter> sqlBudgetFilter(MeterRegistry meterRegistry,
+            @Value("${oc.app.sqlBudgetHeaders:false}") boolean headers,
+            @Value("${oc.app.sqlBudgetEnforce:false}") boolean enforce,
+            @Value("${oc.app.sqlBudgetRepeatedStatementThreshold:10}") int repeatedStatementThreshold) {
+        FilterRegistrationBean<SqlBudgetFilter> registration = new FilterRegistrationBean<>(
+                new SqlBudgetFilter(meterRegistry, headers, enforce, repeatedStatementThreshold));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new SqlBudgetInterceptor());
+    }
+}
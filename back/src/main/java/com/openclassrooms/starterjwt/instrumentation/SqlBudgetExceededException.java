@@ -0,0 +1,11 @@
+package com.openclassrooms.starterjwt.instrumentation;
+
+/**
+ * Thrown after a request that ran more statements, or read more rows, than
+ * the {@link SqlBudget} of its handler allows, when budgets are enforced.
+ */
+public class SqlBudgetExceededException extends IllegalStateException {
+    public SqlBudgetExceededException(String message) {
+        super(message);
+    }
+}
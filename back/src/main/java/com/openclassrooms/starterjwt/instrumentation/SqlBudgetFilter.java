@@ -0,0 +1,134 @@
+package com.openclassrooms.starterjwt.instrumentation;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.web.util.OnCommittedResponseWrapper;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Counts the statements and rows of each request, security filters
+ * included, and records them per handler method. Optionally reports them in
+ * the {@value #STATEMENTS_HEADER} and {@value #ROWS_HEADER} response headers,
+ * and fails requests that exceed their {@link SqlBudget}. The same SQL run
+ * {@code repeatedStatementThreshold} times in one request is logged as a
+ * likely N+1.
+ */
+public class SqlBudgetFilter extends OncePerRequestFilter {
+    private static final Logger logger = LoggerFactory.getLogger(SqlBudgetFilter.class);
+
+    public static final String STATEMENTS_HEADER = "X-SQL-Statements";
+
+    public static final String ROWS_HEADER = "X-SQL-Rows";
+
+    private static final String NO_HANDLER = "none";
+
+    private final MeterRegistry meterRegistry;
+
+    private final boolean headers;
+
+    private final boolean enforce;
+
+    private final int repeatedStatementThreshold;
+
+    public SqlBudgetFilter(MeterRegistry meterRegistry, boolean headers, boolean enforce, int repeatedStatementThreshold) {
+        this.meterRegistry = meterRegistry;
+        this.headers = headers;
+        this.enforce = enforce;
+        this.repeatedStatementThreshold = repeatedStatementThreshold;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        SqlStatementCounter counter = SqlStatementCounter.start();
+        HttpServletResponse countedResponse = this.headers ? new HeaderWritingResponse(response, counter) : response;
+        try {
+            filterChain.doFilter(request, countedResponse);
+        } finally {
+            SqlStatementCounter.stop();
+        }
+        if (this.headers && !response.isCommitted()) {
+            writeHeaders(response, counter);
+        }
+
+        String handler = (String) request.getAttribute(SqlBudgetInterceptor.HANDLER_ATTRIBUTE);
+        if (handler == null) {
+            handler = NO_HANDLER;
+        }
+        record(handler, counter);
+        reportRepeatedStatements(handler, counter);
+
+        SqlBudget budget = (SqlBudget) request.getAttribute(SqlBudgetInterceptor.BUDGET_ATTRIBUTE);
+        if (budget != null && (counter.getStatements() > budget.statements() || counter.getRows() > budget.rows())) {
+            budgetExceeded(request, handler, budget, counter);
+        }
+    }
+
+    private void record(String handler, SqlStatementCounter counter) {
+        DistributionSummary.builder("http.server.requests.sql.statements")
+                .description("JDBC statements executed per request")
+                .tag("handler", handler)
+                .register(this.meterRegistry)
+                .record(counter.getStatements());
+        DistributionSummary.builder("http.server.requests.sql.rows")
+                .description("Rows read from JDBC result sets per request")
+                .tag("handler", handler)
+                .register(this.meterRegistry)
+                .record(counter.getRows());
+    }
+
+    private void reportRepeatedStatements(String handler, SqlStatementCounter counter) {
+        for (Map.Entry<String, Integer> execution : counter.getExecutionsBySql().entrySet()) {
+            if (execution.getValue() >= this.repeatedStatementThreshold) {
+                logger.warn("Possible N+1 in {}: statement executed {} times in one request: {}",
+                        handler, execution.getValue(), execution.getKey());
+            }
+        }
+    }
+
+    private void budgetExceeded(HttpServletRequest request, String handler, SqlBudget budget, SqlStatementCounter counter) {
+        Counter.builder("http.server.requests.sql.budget.exceeded")
+                .description("Requests that ran more statements or read more rows than their budget")
+                .tag("handler", handler)
+                .register(this.meterRegistry)
+                .increment();
+
+        String message = String.format("%s %s ran %d statements and read %d rows, the budget of %s is %d statements and %d rows",
+                request.getMethod(), request.getRequestURI(), counter.getStatements(), counter.getRows(),
+                handler, budget.statements(), budget.rows());
+        if (this.enforce) {
+            throw new SqlBudgetExceededException(message);
+        }
+        logger.warn(message);
+    }
+
+    private static void writeHeaders(HttpServletResponse response, SqlStatementCounter counter) {
+        response.setHeader(STATEMENTS_HEADER, Integer.toString(counter.getStatements()));
+        response.setHeader(ROWS_HEADER, Long.toString(counter.getRows()));
+    }
+
+    /** Adds the headers while they can still be sent, just before the body is. */
+    private static final class HeaderWritingResponse extends OnCommittedResponseWrapper {
+        private final SqlStatementCounter counter;
+
+        HeaderWritingResponse(HttpServletResponse response, SqlStatementCounter counter) {
+            super(response);
+            this.counter = counter;
+        }
+
+        @Override
+        protected void onResponseCommitted() {
+            writeHeaders((HttpServletResponse) getResponse(), this.counter);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.openclassrooms.starterjwt.instrumentation;
+
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Tells {@link SqlBudgetFilter}, which runs before the handler is known,
+ * which controller method served the request and what its budget is.
+ */
+public class SqlBudgetInterceptor implements HandlerInterceptor {
+    static final String HANDLER_ATTRIBUTE = SqlBudgetInterceptor.class.getName() + ".handler";
+
+    static final String BUDGET_ATTRIBUTE = SqlBudgetInterceptor.class.getName() + ".budget";
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod) {
+            HandlerMethod handlerMethod = (HandlerMethod) handler;
+            request.setAttribute(HANDLER_ATTRIBUTE,
+                    handlerMethod.getBeanType().getSimpleName() + "." + handlerMethod.getMethod().getName());
+            SqlBudget budget = handlerMethod.getMethodAnnotation(SqlBudget.class);
+            if (budget != null) {
+                request.setAttribute(BUDGET_ATTRIBUTE, budget);
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,62 @@
+package com.openclassrooms.starterjwt.instrumentation;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Statements executed and rows read on the current thread between
+ * {@link #start()} and {@link #stop()}. Threads that never call
+ * {@link #start()} are not counted.
+ */
+public final class SqlStatementCounter {
+    private static final ThreadLocal<SqlStatementCounter> CURRENT = new ThreadLocal<>();
+
+    private int statements;
+
+    private long rows;
+
+    private final Map<String, Integer> executionsBySql = new HashMap<>();
+
+    private SqlStatementCounter() {
+    }
+
+    public static SqlStatementCounter start() {
+        SqlStatementCounter counter = new SqlStatementCounter();
+        CURRENT.set(counter);
+        return counter;
+    }
+
+    public static void stop() {
+        CURRENT.remove();
+    }
+
+    /** The counter of the current thread, or null if it is not counting. */
+    public static SqlStatementCounter current() {
+        return CURRENT.get();
+    }
+
+    void statementExecuted(String sql) {
+        this.statements++;
+        if (sql != null) {
+            this.executionsBySql.merge(sql, 1, Integer::sum);
+        }
+    }
+
+    void rowRead() {
+        this.rows++;
+    }
+
+    public int getStatements() {
+        return this.statements;
+    }
+
+    public long getRows() {
+        return this.rows;
+    }
+
+    /** How many times each SQL string was executed; the same query run once per row is an N+1. */
+    public Map<String, Integer> getExecutionsBySql() {
+        return Collections.unmodifiableMap(this.executionsBySql);
+    }
+}
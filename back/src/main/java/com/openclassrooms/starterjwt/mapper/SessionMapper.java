@@ -1,8 +1,11 @@
 package com.openclassrooms.starterjwt.mapper;
 
 import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.exception.BadRequestException;
 import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.projection.SessionSummary;
 import com.openclassrooms.starterjwt.services.TeacherService;
 import com.openclassrooms.starterjwt.services.UserService;
 import org.mapstruct.Mapper;
@@ -11,8 +14,13 @@ import org.mapstruct.Mappings;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -25,13 +33,55 @@ public abstract class SessionMapper implements EntityMapper<SessionDto, Session>
     @Autowired
     UserService userService;
 
+    @Override
+    public Session toEntity(SessionDto sessionDto) {
+        if (sessionDto == null) {
+            return null;
+        }
+        return toEntity(Collections.singletonList(sessionDto)).get(0);
+    }
+
+    /**
+     * Resolves the relations of all the DTOs up front: one query for every
+     * participant of every DTO, and one lookup per distinct teacher. Unknown
+     * teacher or user ids are rejected with a {@link BadRequestException}
+     * instead of being mapped to null. A null users list stays null, so that
+     * an update can keep the current participants.
+     */
+    @Override
+    public List<Session> toEntity(List<SessionDto> sessionDtos) {
+        if (sessionDtos == null) {
+            return null;
+        }
+
+        Map<Long, User> users = this.userService.findAllById(sessionDtos.stream()
+                .map(SessionDto::getUsers)
+                .filter(Objects::nonNull)
+                .flatMap(List::stream)
+                .collect(Collectors.toList()));
+        Map<Long, Teacher> teachers = new HashMap<>();
+
+        return sessionDtos.stream().map(sessionDto -> {
+            Session session = toEntityWithoutRelations(sessionDto);
+            if (sessionDto.getTeacher_id() != null) {
+                session.setTeacher(teachers.computeIfAbsent(sessionDto.getTeacher_id(), this::findTeacher));
+            }
+            if (sessionDto.getUsers() != null) {
+                session.setUsers(sessionDto.getUsers().stream()
+                        .distinct()
+                        .map(users::get)
+                        .collect(Collectors.toCollection(ArrayList::new)));
+            }
+            return session;
+        }).collect(Collectors.toList());
+    }
+
     @Mappings({
             @Mapping(source = "description", target = "description"),
-            @Mapping(target = "teacher", expression = "java(sessionDto.getTeacher_id() != null ? this.teacherService.findById(sessionDto.getTeacher_id()) : null)"),
-            @Mapping(target = "users", expression = "java(Optional.ofNullable(sessionDto.getUsers()).orElseGet(Collections::emptyList).stream().map(user_id -> { User user = this.userService.findById(user_id); if (user != null) { return user; } return null; }).collect(Collectors.toList()))"),
+            @Mapping(target = "teacher", ignore = true),
+            @Mapping(target = "users", ignore = true),
     })
-    public abstract Session toEntity(SessionDto sessionDto);
-
+    protected abstract Session toEntityWithoutRelations(SessionDto sessionDto);
 
     @Mappings({
             @Mapping(source = "description", target = "description"),
@@ -39,4 +89,19 @@ public abstract class SessionMapper implements EntityMapper<SessionDto, Session>
             @Mapping(target = "users", expression = "java(Optional.ofNullable(session.getUsers()).orElseGet(Collections::emptyList).stream().map(u -> u.getId()).collect(Collectors.toList()))"),
     })
     public abstract SessionDto toDto(Session session);
+
+    @Mappings({
+            @Mapping(source = "teacherId", target = "teacher_id"),
+    })
+    public abstract SessionDto toDto(SessionSummary session);
+
+    public abstract List<SessionDto> summariesToDto(List<SessionSummary> sessions);
+
+    private Teacher findTeacher(Long id) {
+        Teacher teacher = this.teacherService.findById(id);
+        if (teacher == null) {
+            throw new BadRequestException();
+        }
+        return teacher;
+    }
 }
@@ -23,7 +23,9 @@ import java.time.LocalDateTime;
 @ToString
 public class Teacher {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "teacher_id")
+    @TableGenerator(name = "teacher_id", table = "ID_SEQUENCES", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "TEACHERS", allocationSize = 50)
     private Long id;
 
     @NotBlank
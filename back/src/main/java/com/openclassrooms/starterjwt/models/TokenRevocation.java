@@ -0,0 +1,32 @@
+package com.openclassrooms.starterjwt.models;
+
+import lombok.*;
+import lombok.experimental.Accessors;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import java.util.Date;
+
+/**
+ * Tokens of this user issued up to {@code revokedAt} must be rejected. Rows
+ * older than one token lifetime are purged, since those tokens have expired.
+ */
+@Entity
+@Table(name = "TOKEN_REVOCATIONS")
+@Data
+@Accessors(chain = true)
+@EqualsAndHashCode(of = {"userId"})
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+public class TokenRevocation {
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @NotNull
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "revoked_at")
+    private Date revokedAt;
+}
@@ -26,7 +26,9 @@ import java.time.LocalDateTime;
 @ToString
 public class User {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.TABLE, generator = "user_id")
+  @TableGenerator(name = "user_id", table = "ID_SEQUENCES", pkColumnName = "sequence_name",
+          valueColumnName = "next_val", pkColumnValue = "USERS", allocationSize = 50)
   private Long id;
 
   @NonNull
@@ -0,0 +1,31 @@
+package com.openclassrooms.starterjwt.payload.response;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+public class SessionImportResponse {
+  private int imported;
+
+  private final List<ItemError> errors = new ArrayList<>();
+
+  public void addImported(int count) {
+    this.imported += count;
+  }
+
+  public void addError(int index, String message) {
+    this.errors.add(new ItemError(index, message));
+  }
+
+  /** Why the item at {@code index}, counted from 0 in the request body, was not imported. */
+  @Getter
+  @AllArgsConstructor
+  public static class ItemError {
+    private final int index;
+
+    private final String message;
+  }
+}
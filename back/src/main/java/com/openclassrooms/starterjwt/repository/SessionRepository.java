@@ -1,9 +1,82 @@
 package com.openclassrooms.starterjwt.repository;
 
 import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.repository.projection.ParticipantId;
+import com.openclassrooms.starterjwt.repository.projection.SessionCapacity;
+import com.openclassrooms.starterjwt.repository.projection.SessionSummary;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.EntityGraph.EntityGraphType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface SessionRepository  extends JpaRepository<Session, Long> {
+public interface SessionRepository  extends JpaRepository<Session, Long>, SessionRepositoryCustom {
+    String SELECT_SUMMARY = "select new com.openclassrooms.starterjwt.repository.projection.SessionSummary("
+            + "s.id, s.name, s.date, s.description, s.teacher.id, s.capacity, s.version, s.createdAt, s.updatedAt) from Session s";
+
+    /**
+     * Listings join the teacher in the same statement; participants of the
+     * returned sessions are then loaded in batches of 100 sessions instead of
+     * one query per session.
+     */
+    @Override
+    @EntityGraph(attributePaths = "teacher", type = EntityGraphType.LOAD)
+    List<Session> findAll();
+
+    @Query(SELECT_SUMMARY)
+    List<SessionSummary> findAllSummaries();
+
+    @Query(SELECT_SUMMARY + " where s.id = :id")
+    Optional<SessionSummary> findSummaryById(@Param("id") Long id);
+
+    @Query(SELECT_SUMMARY + " order by s.date asc, s.id asc")
+    List<SessionSummary> findSummaryPage(Pageable pageable);
+
+    @Query(SELECT_SUMMARY + " where s.date > :date or (s.date = :date and s.id > :id) order by s.date asc, s.id asc")
+    List<SessionSummary> findSummariesAfter(@Param("date") Date date, @Param("id") Long id, Pageable pageable);
+
+    @Query(value = "select session_id as sessionId, user_id as userId from PARTICIPATE", nativeQuery = true)
+    List<ParticipantId> findAllParticipantIds();
+
+    @Query(value = "select session_id as sessionId, user_id as userId from PARTICIPATE where session_id in (:sessionIds)", nativeQuery = true)
+    List<ParticipantId> findParticipantIds(@Param("sessionIds") Collection<Long> sessionIds);
+
+    @Transactional
+    @Modifying
+    @Query(value = "insert into PARTICIPATE (session_id, user_id) values (:sessionId, :userId)", nativeQuery = true)
+    int addParticipant(@Param("sessionId") Long sessionId, @Param("userId") Long userId);
+
+    @Transactional
+    @Modifying
+    @Query(value = "delete from PARTICIPATE where session_id = :sessionId and user_id = :userId", nativeQuery = true)
+    int removeParticipant(@Param("sessionId") Long sessionId, @Param("userId") Long userId);
+
+    @Query(value = "select id, capacity, version from SESSIONS where id = :id", nativeQuery = true)
+    Optional<SessionCapacity> findCapacity(@Param("id") Long id);
+
+    /**
+     * Increments the version if it is still {@code version}.
+     *
+     * @return 0 when another transaction changed the session in the meantime
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "update SESSIONS set version = version + 1 where id = :id and version = :version", nativeQuery = true)
+    int incrementVersion(@Param("id") Long id, @Param("version") Long version);
+
+    @Query(value = "select count(*) from PARTICIPATE where session_id = :sessionId", nativeQuery = true)
+    long countParticipants(@Param("sessionId") Long sessionId);
+
+    @Query("select u.id from Session s join s.users u where s.id = :sessionId and u.id in :userIds")
+    List<Long> findParticipantUserIds(@Param("sessionId") Long sessionId, @Param("userIds") Collection<Long> userIds);
 }
@@ -0,0 +1,10 @@
+package com.openclassrooms.starterjwt.repository;
+
+import java.util.Collection;
+
+public interface SessionRepositoryCustom {
+    /**
+     * Inserts one PARTICIPATE row per user as a single JDBC batch.
+     */
+    void addParticipants(Long sessionId, Collection<Long> userIds);
+}
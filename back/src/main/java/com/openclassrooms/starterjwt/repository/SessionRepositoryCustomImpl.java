@@ -0,0 +1,28 @@
+package com.openclassrooms.starterjwt.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class SessionRepositoryCustomImpl implements SessionRepositoryCustom {
+    private final JdbcTemplate jdbcTemplate;
+
+    public SessionRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    @Transactional
+    public void addParticipants(Long sessionId, Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = userIds.stream()
+                .map(userId -> new Object[]{sessionId, userId})
+                .collect(Collectors.toList());
+        this.jdbcTemplate.batchUpdate("insert into PARTICIPATE (session_id, user_id) values (?, ?)", rows);
+    }
+}
@@ -0,0 +1,31 @@
+package com.openclassrooms.starterjwt.repository.projection;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+/**
+ * Aggregate of a whole table that changes whenever a row is added, removed or
+ * updated: the row count, the highest id and a change marker (the latest
+ * update time, or a digest of the row versions). Ids are allocated in blocks
+ * per node, so the highest id alone does not reveal a delete followed by an
+ * insert.
+ */
+@Value
+public class CollectionVersion {
+    long count;
+
+    Long maxId;
+
+    String lastChange;
+
+    public CollectionVersion(Long count, Long maxId, LocalDateTime lastUpdate) {
+        this(count, maxId, String.valueOf(lastUpdate));
+    }
+
+    public CollectionVersion(Long count, Long maxId, String lastChange) {
+        this.count = count;
+        this.maxId = maxId;
+        this.lastChange = lastChange;
+    }
+}
@@ -0,0 +1,10 @@
+package com.openclassrooms.starterjwt.repository.projection;
+
+/**
+ * One row of the PARTICIPATE join table.
+ */
+public interface ParticipantId {
+    Long getSessionId();
+
+    Long getUserId();
+}
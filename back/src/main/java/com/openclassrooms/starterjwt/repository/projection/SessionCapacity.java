@@ -0,0 +1,13 @@
+package com.openclassrooms.starterjwt.repository.projection;
+
+/**
+ * Id, capacity and version of a session, read before writing its
+ * participants.
+ */
+public interface SessionCapacity {
+    Long getId();
+
+    Integer getCapacity();
+
+    Long getVersion();
+}
@@ -0,0 +1,46 @@
+package com.openclassrooms.starterjwt.repository.projection;
+
+import lombok.AllArgsConstructor;
+import lombok.Value;
+import lombok.With;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Read model of a session for listings: the session columns, the teacher id
+ * and the participant ids, without loading {@code Teacher} or {@code User}
+ * entities.
+ */
+@Value
+@AllArgsConstructor
+public class SessionSummary {
+    Long id;
+
+    String name;
+
+    Date date;
+
+    String description;
+
+    Long teacherId;
+
+    Integer capacity;
+
+    @With
+    List<Long> users;
+
+    Long version;
+
+    LocalDateTime createdAt;
+
+    LocalDateTime updatedAt;
+
+    /** Used by the JPQL constructor expression; participants are attached afterwards. */
+    public SessionSummary(Long id, String name, Date date, String description, Long teacherId, Integer capacity,
+                          Long version, LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this(id, name, date, description, teacherId, capacity, Collections.emptyList(), version, createdAt, updatedAt);
+    }
+}
@@ -0,0 +1,37 @@
+package com.openclassrooms.starterjwt.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.openclassrooms.starterjwt.security.crypto.AdaptiveBCryptPasswordEncoder;
+import com.openclassrooms.starterjwt.security.crypto.BoundedPasswordEncoder;
+
+/**
+ * The password encoder, declared apart from {@link WebSecurityConfig}: the
+ * meter registry binds it when it is created, and must not pull in the web
+ * security configuration to do so.
+ */
+@Configuration
+public class PasswordEncoderConfig {
+  @Value("${oc.app.bcryptStrength:10}")
+  private int bcryptStrength;
+
+  @Value("${oc.app.passwordHashTargetMs:250}")
+  private long passwordHashTargetMs;
+
+  @Value("${oc.app.passwordHashPoolSize:2}")
+  private int passwordHashPoolSize;
+
+  @Value("${oc.app.passwordHashQueueCapacity:32}")
+  private int passwordHashQueueCapacity;
+
+  @Value("${oc.app.passwordHashTimeoutMs:5000}")
+  private long passwordHashTimeoutMs;
+
+  @Bean
+  public BoundedPasswordEncoder passwordEncoder() {
+    return new BoundedPasswordEncoder(AdaptiveBCryptPasswordEncoder.of(bcryptStrength, passwordHashTargetMs),
+        passwordHashPoolSize, passwordHashQueueCapacity, passwordHashTimeoutMs);
+  }
+}
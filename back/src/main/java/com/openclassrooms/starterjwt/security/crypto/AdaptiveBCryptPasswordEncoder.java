@@ -0,0 +1,67 @@
+package com.openclassrooms.starterjwt.security.crypto;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+/**
+ * BCrypt encoder whose cost is either configured or, on request, calibrated
+ * against a target hashing latency on the current hardware. As with
+ * {@link BCryptPasswordEncoder}, hashes stored with a lower cost than this one
+ * are re-hashed on login, so raising the cost migrates existing hashes, and
+ * hashes with a higher cost are kept.
+ */
+public class AdaptiveBCryptPasswordEncoder extends BCryptPasswordEncoder {
+  private static final Logger logger = LoggerFactory.getLogger(AdaptiveBCryptPasswordEncoder.class);
+
+  /** Calibration never goes below this cost, however slow the node is. */
+  static final int MIN_CALIBRATED_STRENGTH = 10;
+
+  static final int MAX_STRENGTH = 16;
+
+  private static final int CALIBRATION_STRENGTH = 8;
+
+  private final int strength;
+
+  public AdaptiveBCryptPasswordEncoder(int strength) {
+    super(strength);
+    this.strength = strength;
+  }
+
+  /**
+   * @param strength the BCrypt cost to use, or a negative value to calibrate it;
+   *                 every node of a deployment should end up with the same cost
+   * @param targetMs the hashing latency to calibrate for
+   */
+  public static AdaptiveBCryptPasswordEncoder of(int strength, long targetMs) {
+    if (strength >= 0) {
+      return new AdaptiveBCryptPasswordEncoder(strength);
+    }
+    int calibrated = calibrate(targetMs);
+    logger.info("Calibrated BCrypt strength {} for a target of {} ms per hash", calibrated, targetMs);
+    return new AdaptiveBCryptPasswordEncoder(calibrated);
+  }
+
+  /**
+   * Times a hash at a low cost and extrapolates, each cost step doubling the
+   * work, to the cost closest to the target latency, but not below
+   * {@value #MIN_CALIBRATED_STRENGTH}.
+   */
+  static int calibrate(long targetMs) {
+    BCryptPasswordEncoder probe = new BCryptPasswordEncoder(CALIBRATION_STRENGTH);
+    for (int i = 0; i < 3; i++) {
+      probe.encode("calibration");
+    }
+
+    long start = System.nanoTime();
+    probe.encode("calibration");
+    double probeMs = Math.max((System.nanoTime() - start) / 1_000_000.0, 0.01);
+
+    int steps = (int) Math.round(Math.log(targetMs / probeMs) / Math.log(2));
+    return Math.max(MIN_CALIBRATED_STRENGTH, Math.min(MAX_STRENGTH, CALIBRATION_STRENGTH + steps));
+  }
+
+  public int getStrength() {
+    return strength;
+  }
+}
@@ -0,0 +1,188 @@
+package com.openclassrooms.starterjwt.security.crypto;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.openclassrooms.starterjwt.exception.ServiceUnavailableException;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Runs the hashing and verification of a delegate encoder on a dedicated,
+ * bounded pool, so a burst of logins or registrations cannot use more than
+ * {@code poolSize} cores. When the pool and its queue are full, or a hash
+ * waits longer than {@code timeoutMs}, the call fails fast with a
+ * {@link ServiceUnavailableException} (503) instead of piling up request
+ * threads.
+ * <p>
+ * A timeout only frees the caller. BCrypt does not check for interrupts, so a
+ * hash that already started keeps its pool thread until it completes; only a
+ * hash still queued is skipped. {@code timeoutMs} should therefore be well
+ * above the worst-case hash time, or timed-out hashes keep the pool full and
+ * fresh logins are rejected.
+ * <p>
+ * Queue depth, busy threads, rejections, abandoned hashes and hash time are
+ * published under {@code password.hash}.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder, MeterBinder, DisposableBean {
+  private static final Logger logger = LoggerFactory.getLogger(BoundedPasswordEncoder.class);
+
+  private final PasswordEncoder delegate;
+
+  private final ThreadPoolExecutor executor;
+
+  private final long timeoutMs;
+
+  private final AtomicLong hashCount = new AtomicLong();
+
+  private final AtomicLong hashNanos = new AtomicLong();
+
+  private final AtomicLong rejectedCount = new AtomicLong();
+
+  private final AtomicLong abandonedCount = new AtomicLong();
+
+  public BoundedPasswordEncoder(PasswordEncoder delegate, int poolSize, int queueCapacity, long timeoutMs) {
+    this.delegate = delegate;
+    this.timeoutMs = timeoutMs;
+
+    AtomicInteger threadNumber = new AtomicInteger();
+    this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(queueCapacity),
+        runnable -> {
+          Thread thread = new Thread(runnable, "password-hash-" + threadNumber.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        },
+        new ThreadPoolExecutor.AbortPolicy());
+  }
+
+  @Override
+  public String encode(CharSequence rawPassword) {
+    return execute(() -> delegate.encode(rawPassword));
+  }
+
+  @Override
+  public boolean matches(CharSequence rawPassword, String encodedPassword) {
+    return execute(() -> delegate.matches(rawPassword, encodedPassword));
+  }
+
+  @Override
+  public boolean upgradeEncoding(String encodedPassword) {
+    return delegate.upgradeEncoding(encodedPassword);
+  }
+
+  public int getQueueDepth() {
+    return executor.getQueue().size();
+  }
+
+  public int getActiveCount() {
+    return executor.getActiveCount();
+  }
+
+  public int getPoolSize() {
+    return executor.getMaximumPoolSize();
+  }
+
+  public long getRejectedCount() {
+    return rejectedCount.get();
+  }
+
+  /** Hashes whose caller timed out; they may still be holding a pool thread. */
+  public long getAbandonedCount() {
+    return abandonedCount.get();
+  }
+
+  public long getHashCount() {
+    return hashCount.get();
+  }
+
+  /** Total time spent hashing or verifying, excluding time queued. */
+  public long getHashTimeNanos() {
+    return hashNanos.get();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder("password.hash.queue", this, BoundedPasswordEncoder::getQueueDepth)
+        .description("Hashes waiting for a thread of the pool")
+        .register(registry);
+    Gauge.builder("password.hash.active", this, BoundedPasswordEncoder::getActiveCount)
+        .description("Threads of the pool currently hashing")
+        .register(registry);
+    FunctionCounter.builder("password.hash.rejected", this, BoundedPasswordEncoder::getRejectedCount)
+        .description("Hashes refused because the pool was saturated or too slow")
+        .register(registry);
+    FunctionCounter.builder("password.hash.abandoned", this, BoundedPasswordEncoder::getAbandonedCount)
+        .description("Hashes whose caller timed out, left to finish on the pool")
+        .register(registry);
+    FunctionTimer.builder("password.hash", this, BoundedPasswordEncoder::getHashCount,
+            BoundedPasswordEncoder::getHashTimeNanos, TimeUnit.NANOSECONDS)
+        .description("Time spent hashing or verifying, excluding time queued")
+        .register(registry);
+  }
+
+  @Override
+  public void destroy() {
+    executor.shutdownNow();
+  }
+
+  private <T> T execute(Callable<T> task) {
+    Future<T> future;
+    try {
+      future = executor.submit(() -> timed(task));
+    } catch (RejectedExecutionException e) {
+      rejectedCount.incrementAndGet();
+      logger.warn("Password hashing pool saturated ({} queued), rejecting request", getQueueDepth());
+      throw new ServiceUnavailableException();
+    }
+
+    try {
+      return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      // Skips the hash if it is still queued; a running one cannot be stopped.
+      future.cancel(false);
+      rejectedCount.incrementAndGet();
+      abandonedCount.incrementAndGet();
+      logger.warn("Password hashing did not complete within {} ms ({} threads busy, {} queued)",
+          timeoutMs, getActiveCount(), getQueueDepth());
+      throw new ServiceUnavailableException();
+    } catch (InterruptedException e) {
+      future.cancel(false);
+      abandonedCount.incrementAndGet();
+      Thread.currentThread().interrupt();
+      throw new ServiceUnavailableException();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  private <T> T timed(Callable<T> task) throws Exception {
+    long start = System.nanoTime();
+    try {
+      return task.call();
+    } finally {
+      hashNanos.addAndGet(System.nanoTime() - start);
+      hashCount.incrementAndGet();
+    }
+  }
+}
@@ -10,6 +10,7 @@ import javax.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -17,15 +18,29 @@ import org.springframework.security.web.authentication.WebAuthenticationDetailsS
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
 import com.openclassrooms.starterjwt.security.services.UserDetailsServiceImpl;
 
 public class AuthTokenFilter extends OncePerRequestFilter {
   @Autowired
   private JwtUtils jwtUtils;
 
+  @Autowired
+  private JwtTokenCache jwtTokenCache;
+
   @Autowired
   private UserDetailsServiceImpl userDetailsService;
 
+  @Autowired
+  private TokenRevocationList tokenRevocationList;
+
+  /**
+   * When enabled, the principal of tokens carrying the user claims is built
+   * from the claims alone, without loading the user.
+   */
+  @Value("${oc.app.jwtStatelessPrincipal:false}")
+  private boolean statelessPrincipal;
+
   private static final Logger logger = LoggerFactory.getLogger(AuthTokenFilter.class);
 
   @Override
@@ -33,10 +48,9 @@ public class AuthTokenFilter extends OncePerRequestFilter {
       throws ServletException, IOException {
     try {
       String jwt = parseJwt(request);
-      if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-        String username = jwtUtils.getUserNameFromJwtToken(jwt);
-
-        UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+      VerifiedJwt token = jwt != null ? verifyJwt(jwt) : null;
+      UserDetails userDetails = token != null ? loadUserDetails(token) : null;
+      if (userDetails != null) {
         UsernamePasswordAuthenticationToken authentication =
             new UsernamePasswordAuthenticationToken(
                 userDetails,
@@ -53,6 +67,36 @@ public class AuthTokenFilter extends OncePerRequestFilter {
     filterChain.doFilter(request, response);
   }
 
+  UserDetails loadUserDetails(VerifiedJwt token) {
+    if (!statelessPrincipal || token.getUserId() == null) {
+      return userDetailsService.loadUserByUsername(token.getSubject());
+    }
+
+    if (tokenRevocationList.isRevoked(token)) {
+      logger.warn("Rejecting revoked token of user {}", token.getUserId());
+      return null;
+    }
+
+    return UserDetailsImpl.builder()
+        .id(token.getUserId())
+        .username(token.getSubject())
+        .firstName(token.getFirstName())
+        .lastName(token.getLastName())
+        .admin(token.getAdmin())
+        .build();
+  }
+
+  VerifiedJwt verifyJwt(String jwt) {
+    VerifiedJwt token = jwtTokenCache.get(jwt);
+    if (token == null) {
+      token = jwtUtils.parseJwtToken(jwt);
+      if (token != null) {
+        jwtTokenCache.put(jwt, token);
+      }
+    }
+    return token;
+  }
+
   String parseJwt(HttpServletRequest request) {
     String headerAuth = request.getHeader("Authorization");
 
@@ -0,0 +1,115 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Remembers tokens that {@link JwtUtils#parseJwtToken(String)} already
+ * verified, so a bearer token sent again skips the HMAC check and claim
+ * parsing. Entries are keyed by the SHA-256 digest of the raw token, expire
+ * at the token's {@code exp} claim and are bounded in number (LRU-like).
+ * Hits, misses, evictions and size are published as the {@code jwtTokens}
+ * cache meters.
+ */
+@Component
+public class JwtTokenCache implements MeterBinder {
+  private final Cache<String, VerifiedJwt> cache;
+
+  public JwtTokenCache(@Value("${oc.app.jwtCacheMaxSize:10000}") long maxSize) {
+    this.cache = Caffeine.newBuilder()
+        .maximumSize(maxSize)
+        .expireAfter(new Expiry<String, VerifiedJwt>() {
+          @Override
+          public long expireAfterCreate(String key, VerifiedJwt token, long currentTime) {
+            long remainingMs = token.getExpiration().getTime() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMs, 0));
+          }
+
+          @Override
+          public long expireAfterUpdate(String key, VerifiedJwt token, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, token, currentTime);
+          }
+
+          @Override
+          public long expireAfterRead(String key, VerifiedJwt token, long currentTime, long currentDuration) {
+            return currentDuration;
+          }
+        })
+        .recordStats()
+        .build();
+  }
+
+  /**
+   * @return the cached claims of this token, or {@code null} if it was never
+   *         verified or has expired since
+   */
+  public VerifiedJwt get(String token) {
+    String key = digest(token);
+    VerifiedJwt verified = cache.getIfPresent(key);
+    if (verified != null && verified.isExpired(System.currentTimeMillis())) {
+      cache.invalidate(key);
+      return null;
+    }
+    return verified;
+  }
+
+  public void put(String token, VerifiedJwt verified) {
+    if (verified.getExpiration() == null) {
+      return;
+    }
+    cache.put(digest(token), verified);
+  }
+
+  public long getHitCount() {
+    return stats().hitCount();
+  }
+
+  public long getMissCount() {
+    return stats().missCount();
+  }
+
+  public long getEvictionCount() {
+    return stats().evictionCount();
+  }
+
+  public long size() {
+    return cache.estimatedSize();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    CaffeineCacheMetrics.monitor(registry, cache, "jwtTokens");
+  }
+
+  void cleanUp() {
+    cache.cleanUp();
+  }
+
+  CacheStats stats() {
+    return cache.stats();
+  }
+
+  static String digest(String token) {
+    try {
+      byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+      return Base64.getEncoder().encodeToString(hash);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+}
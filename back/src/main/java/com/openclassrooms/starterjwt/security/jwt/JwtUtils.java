@@ -1,7 +1,11 @@
 package com.openclassrooms.starterjwt.security.jwt;
 
+import java.security.Key;
 import java.util.Date;
 
+import javax.annotation.PostConstruct;
+import javax.crypto.spec.SecretKeySpec;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -11,6 +15,7 @@ import org.springframework.stereotype.Component;
 import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
 
 import io.jsonwebtoken.*;
+import io.jsonwebtoken.impl.TextCodec;
 
 @Component
 public class JwtUtils {
@@ -19,29 +24,69 @@ public class JwtUtils {
   @Value("${oc.app.jwtSecret}")
   private String jwtSecret;
 
+  static final String CLAIM_ID = "id";
+  static final String CLAIM_FIRST_NAME = "firstName";
+  static final String CLAIM_LAST_NAME = "lastName";
+  static final String CLAIM_ADMIN = "admin";
+
   @Value("${oc.app.jwtExpirationMs}")
   private int jwtExpirationMs;
 
+  private Key signingKey;
+
+  /**
+   * Derives the HMAC key once. The secret is base64-decoded exactly as
+   * {@code signWith(SignatureAlgorithm, String)} does, so tokens issued with
+   * the raw string secret stay valid.
+   */
+  @PostConstruct
+  void initSigningKey() {
+    signingKey = new SecretKeySpec(TextCodec.BASE64.decode(jwtSecret), SignatureAlgorithm.HS512.getJcaName());
+  }
+
   public String generateJwtToken(Authentication authentication) {
 
     UserDetailsImpl userPrincipal = (UserDetailsImpl) authentication.getPrincipal();
 
     return Jwts.builder()
         .setSubject((userPrincipal.getUsername()))
+        .claim(CLAIM_ID, userPrincipal.getId())
+        .claim(CLAIM_FIRST_NAME, userPrincipal.getFirstName())
+        .claim(CLAIM_LAST_NAME, userPrincipal.getLastName())
+        .claim(CLAIM_ADMIN, userPrincipal.getAdmin())
         .setIssuedAt(new Date())
         .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
-        .signWith(SignatureAlgorithm.HS512, jwtSecret)
+        .signWith(SignatureAlgorithm.HS512, signingKey)
         .compact();
   }
 
   public String getUserNameFromJwtToken(String token) {
-    return Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(token).getBody().getSubject();
+    return Jwts.parser().setSigningKey(signingKey).parseClaimsJws(token).getBody().getSubject();
   }
 
   public boolean validateJwtToken(String authToken) {
+    return parseJwtToken(authToken) != null;
+  }
+
+  /**
+   * Verifies the signature and expiry of the token and extracts its claims in a
+   * single parse.
+   *
+   * @return the verified claims, or {@code null} if the token is not valid
+   */
+  public VerifiedJwt parseJwtToken(String authToken) {
     try {
-      Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(authToken);
-      return true;
+      Claims claims = Jwts.parser().setSigningKey(signingKey).parseClaimsJws(authToken).getBody();
+
+      return VerifiedJwt.builder()
+          .subject(claims.getSubject())
+          .issuedAt(claims.getIssuedAt())
+          .expiration(claims.getExpiration())
+          .userId(claims.get(CLAIM_ID, Long.class))
+          .firstName(claims.get(CLAIM_FIRST_NAME, String.class))
+          .lastName(claims.get(CLAIM_LAST_NAME, String.class))
+          .admin(claims.get(CLAIM_ADMIN, Boolean.class))
+          .build();
     } catch (SignatureException e) {
       logger.error("Invalid JWT signature: {}", e.getMessage());
     } catch (MalformedJwtException e) {
@@ -54,6 +99,6 @@ public class JwtUtils {
       logger.error("JWT claims string is empty: {}", e.getMessage());
     }
 
-    return false;
+    return null;
   }
 }
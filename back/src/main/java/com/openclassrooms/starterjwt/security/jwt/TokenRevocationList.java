@@ -0,0 +1,120 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.openclassrooms.starterjwt.models.TokenRevocation;
+import com.openclassrooms.starterjwt.repository.TokenRevocationRepository;
+
+/**
+ * Users whose tokens must no longer be trusted when the principal is rebuilt
+ * from claims alone. Revocations are stored in TOKEN_REVOCATIONS, so they hold
+ * on every node, and are kept for one token lifetime, after which every token
+ * issued before them has expired anyway.
+ * <p>
+ * Checks read a copy of the table that the first request after
+ * {@code oc.app.tokenRevocationRefreshMs} reloads. A revocation takes effect
+ * at once on the node that made it, and on the other nodes within that delay.
+ */
+@Component
+public class TokenRevocationList {
+  private static final Logger logger = LoggerFactory.getLogger(TokenRevocationList.class);
+
+  private final TokenRevocationRepository tokenRevocationRepository;
+
+  private final long jwtExpirationMs;
+
+  private final long refreshMs;
+
+  private final Cache<Long, Long> revokedHere;
+
+  private final ReentrantLock refreshLock = new ReentrantLock();
+
+  private volatile Map<Long, Long> revokedAt;
+
+  private volatile long loadedAt;
+
+  public TokenRevocationList(TokenRevocationRepository tokenRevocationRepository,
+      @Value("${oc.app.jwtExpirationMs}") long jwtExpirationMs,
+      @Value("${oc.app.tokenRevocationRefreshMs:5000}") long refreshMs) {
+    this.tokenRevocationRepository = tokenRevocationRepository;
+    this.jwtExpirationMs = jwtExpirationMs;
+    this.refreshMs = refreshMs;
+    this.revokedHere = Caffeine.newBuilder()
+        .expireAfterWrite(Duration.ofMillis(jwtExpirationMs))
+        .build();
+  }
+
+  public void revoke(Long userId) {
+    long now = System.currentTimeMillis();
+    tokenRevocationRepository.deleteRevokedBefore(new Date(now - jwtExpirationMs));
+    tokenRevocationRepository.save(new TokenRevocation(userId, new Date(now)));
+    revokedHere.put(userId, now);
+  }
+
+  /**
+   * @return whether the token belongs to a revoked user and was issued before
+   *         the revocation
+   */
+  public boolean isRevoked(VerifiedJwt token) {
+    Long revokedAtMillis = revokedHere.getIfPresent(token.getUserId());
+    if (revokedAtMillis == null) {
+      revokedAtMillis = revocations().get(token.getUserId());
+    }
+    if (revokedAtMillis == null) {
+      return false;
+    }
+    return token.getIssuedAt() == null || token.getIssuedAt().getTime() <= revokedAtMillis;
+  }
+
+  /**
+   * The stored revocations, reloaded by one caller when stale while the others
+   * keep using the previous copy. Until the first load completes, callers wait
+   * for it.
+   */
+  private Map<Long, Long> revocations() {
+    if (revokedAt != null && System.currentTimeMillis() - loadedAt < refreshMs) {
+      return revokedAt;
+    }
+    if (revokedAt == null) {
+      refreshLock.lock();
+    } else if (!refreshLock.tryLock()) {
+      return revokedAt;
+    }
+    try {
+      if (revokedAt == null || System.currentTimeMillis() - loadedAt >= refreshMs) {
+        load();
+      }
+    } finally {
+      refreshLock.unlock();
+    }
+    return revokedAt;
+  }
+
+  private void load() {
+    long now = System.currentTimeMillis();
+    try {
+      revokedAt = tokenRevocationRepository.findByRevokedAtAfter(new Date(now - jwtExpirationMs)).stream()
+          .collect(Collectors.toUnmodifiableMap(TokenRevocation::getUserId, r -> r.getRevokedAt().getTime()));
+      loadedAt = now;
+    } catch (DataAccessException e) {
+      // Keep the previous copy; until one loads, nothing is known to be revoked.
+      logger.warn("Cannot load token revocations: {}", e.getMessage());
+      if (revokedAt == null) {
+        revokedAt = Map.of();
+      }
+      loadedAt = now;
+    }
+  }
+}
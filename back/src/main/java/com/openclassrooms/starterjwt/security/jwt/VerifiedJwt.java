@@ -0,0 +1,36 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import java.util.Date;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Claims of a JWT whose signature and expiry have already been checked by
+ * {@link JwtUtils#parseJwtToken(String)}. Immutable, so it can be shared
+ * between requests once parsed.
+ */
+@Builder
+@AllArgsConstructor
+@Getter
+public class VerifiedJwt {
+  private final String subject;
+
+  private final Date issuedAt;
+
+  private final Date expiration;
+
+  /** Principal claims, absent from tokens issued before they were embedded. */
+  private final Long userId;
+
+  private final String firstName;
+
+  private final String lastName;
+
+  private final Boolean admin;
+
+  public boolean isExpired(long nowMillis) {
+    return expiration != null && expiration.getTime() <= nowMillis;
+  }
+}
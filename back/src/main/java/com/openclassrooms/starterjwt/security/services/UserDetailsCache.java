@@ -0,0 +1,71 @@
+package com.openclassrooms.starterjwt.security.services;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Per-node cache of the {@link UserDetailsImpl} built by
+ * {@link UserDetailsServiceImpl}, so authenticated requests do not query
+ * USERS every time. Entries live for {@code oc.app.userDetailsCacheTtlMs} and
+ * must be evicted explicitly when the user is deleted or registered again.
+ * Published as the {@code userDetails} cache meters.
+ */
+@Component
+public class UserDetailsCache implements MeterBinder {
+  private final Cache<String, UserDetailsImpl> cache;
+
+  public UserDetailsCache(@Value("${oc.app.userDetailsCacheTtlMs:300000}") long ttlMs,
+      @Value("${oc.app.userDetailsCacheMaxSize:10000}") long maxSize) {
+    this.cache = Caffeine.newBuilder()
+        .expireAfterWrite(Duration.ofMillis(ttlMs))
+        .maximumSize(maxSize)
+        .recordStats()
+        .build();
+  }
+
+  public UserDetailsImpl get(String username) {
+    return cache.getIfPresent(username);
+  }
+
+  public void put(UserDetailsImpl userDetails) {
+    cache.put(userDetails.getUsername(), userDetails);
+  }
+
+  public void evict(String username) {
+    cache.invalidate(username);
+  }
+
+  /**
+   * Evicts the entry of the user with this id. Scans the cache, which is fine
+   * for the rare deletions that only know the id.
+   */
+  public void evictById(Long id) {
+    cache.asMap().values().removeIf(userDetails -> id.equals(userDetails.getId()));
+  }
+
+  public long getHitCount() {
+    return cache.stats().hitCount();
+  }
+
+  public long getMissCount() {
+    return cache.stats().missCount();
+  }
+
+  public long size() {
+    return cache.estimatedSize();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    CaffeineCacheMetrics.monitor(registry, cache, "userDetails");
+  }
+}
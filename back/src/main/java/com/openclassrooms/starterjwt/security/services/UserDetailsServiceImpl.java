@@ -1,6 +1,7 @@
 package com.openclassrooms.starterjwt.security.services;
 
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
@@ -10,27 +11,61 @@ import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.repository.UserRepository;
 
 @Service
-public class UserDetailsServiceImpl implements UserDetailsService {
+public class UserDetailsServiceImpl implements UserDetailsService, UserDetailsPasswordService {
   UserRepository userRepository;
 
-  UserDetailsServiceImpl(UserRepository userRepository) {
+  UserDetailsCache userDetailsCache;
+
+  UserDetailsServiceImpl(UserRepository userRepository, UserDetailsCache userDetailsCache) {
     this.userRepository = userRepository;
+    this.userDetailsCache = userDetailsCache;
   }
 
   @Override
   @Transactional
   public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+    UserDetailsImpl cached = userDetailsCache.get(username);
+    if (cached != null) {
+      return cached;
+    }
+
     User user = userRepository.findByEmail(username)
         .orElseThrow(() -> new UsernameNotFoundException("User Not Found with email: " + username));
 
-    return UserDetailsImpl
+    UserDetailsImpl userDetails = UserDetailsImpl
             .builder()
             .id(user.getId())
             .username(user.getEmail())
             .lastName(user.getLastName())
             .firstName(user.getFirstName())
+            .admin(user.isAdmin())
             .password(user.getPassword())
             .build();
+    userDetailsCache.put(userDetails);
+
+    return userDetails;
+  }
+
+  /**
+   * Stores a password re-hashed with the configured BCrypt cost. Called by the
+   * authentication provider after a successful login whose stored hash used a
+   * different cost.
+   */
+  @Override
+  public UserDetails updatePassword(UserDetails user, String newPassword) {
+    userRepository.updatePasswordByEmail(user.getUsername(), newPassword);
+    userDetailsCache.evict(user.getUsername());
+
+    UserDetailsImpl previous = (UserDetailsImpl) user;
+    return UserDetailsImpl
+            .builder()
+            .id(previous.getId())
+            .username(previous.getUsername())
+            .lastName(previous.getLastName())
+            .firstName(previous.getFirstName())
+            .admin(previous.getAdmin())
+            .password(newPassword)
+            .build();
   }
 
 }
@@ -0,0 +1,31 @@
+package com.openclassrooms.starterjwt.services;
+
+/**
+ * Result of one sign-up within a batch written by {@link ParticipationWriter}:
+ * either a status, or the exception to throw to that caller only.
+ */
+final class ParticipationOutcome {
+    private final ParticipationStatus status;
+
+    private final RuntimeException error;
+
+    private ParticipationOutcome(ParticipationStatus status, RuntimeException error) {
+        this.status = status;
+        this.error = error;
+    }
+
+    static ParticipationOutcome of(ParticipationStatus status) {
+        return new ParticipationOutcome(status, null);
+    }
+
+    static ParticipationOutcome failed(RuntimeException error) {
+        return new ParticipationOutcome(null, error);
+    }
+
+    ParticipationStatus get() {
+        if (error != null) {
+            throw error;
+        }
+        return status;
+    }
+}
@@ -0,0 +1,9 @@
+package com.openclassrooms.starterjwt.services;
+
+/**
+ * Outcome of {@link SessionService#participate(Long, Long)}.
+ */
+public enum ParticipationStatus {
+    PARTICIPATING,
+    WAITLISTED
+}
@@ -0,0 +1,130 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.exception.NotFoundException;
+import com.openclassrooms.starterjwt.models.WaitlistEntry;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.repository.WaitlistRepository;
+import com.openclassrooms.starterjwt.repository.projection.SessionCapacity;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Transactional writes to PARTICIPATE and WAITLIST. Every method first bumps
+ * the session version, conditionally on the version it read; if another
+ * transaction got there first it fails with an
+ * {@link OptimisticLockingFailureException} and rolls back, so writes to one
+ * session can never exceed its capacity, even across nodes. Callers retry.
+ */
+@Service
+public class ParticipationWriter {
+    private final SessionRepository sessionRepository;
+
+    private final UserRepository userRepository;
+
+    private final WaitlistRepository waitlistRepository;
+
+    public ParticipationWriter(SessionRepository sessionRepository,
+                               UserRepository userRepository,
+                               WaitlistRepository waitlistRepository) {
+        this.sessionRepository = sessionRepository;
+        this.userRepository = userRepository;
+        this.waitlistRepository = waitlistRepository;
+    }
+
+    /**
+     * Signs up a batch of users for one session in a single transaction, in
+     * list order: seats first, then the waitlist. Unknown users, and users
+     * already signed up or waitlisted, fail individually without affecting
+     * the rest of the batch.
+     *
+     * @return one outcome per user id, in the same order
+     * @throws NotFoundException if the session does not exist
+     * @throws OptimisticLockingFailureException if the session changed concurrently
+     */
+    @Transactional
+    public List<ParticipationOutcome> participateAll(Long sessionId, List<Long> userIds) {
+        SessionCapacity session = claim(sessionId);
+
+        Set<Long> knownUsers = new HashSet<>(this.userRepository.findExistingIds(userIds));
+        Set<Long> taken = new HashSet<>(this.sessionRepository.findParticipantUserIds(sessionId, userIds));
+        taken.addAll(this.waitlistRepository.findWaitlistedUserIds(sessionId, userIds));
+        long freeSeats = session.getCapacity() == null
+                ? Long.MAX_VALUE
+                : session.getCapacity() - this.sessionRepository.countParticipants(sessionId);
+
+        List<Long> seated = new ArrayList<>();
+        List<WaitlistEntry> waitlisted = new ArrayList<>();
+        List<ParticipationOutcome> outcomes = new ArrayList<>(userIds.size());
+        for (Long userId : userIds) {
+            if (!knownUsers.contains(userId)) {
+                outcomes.add(ParticipationOutcome.failed(new NotFoundException()));
+            } else if (!taken.add(userId)) {
+                outcomes.add(ParticipationOutcome.failed(new BadRequestException()));
+            } else if (seated.size() < freeSeats) {
+                seated.add(userId);
+                outcomes.add(ParticipationOutcome.of(ParticipationStatus.PARTICIPATING));
+            } else {
+                waitlisted.add(WaitlistEntry.builder().sessionId(sessionId).userId(userId).build());
+                outcomes.add(ParticipationOutcome.of(ParticipationStatus.WAITLISTED));
+            }
+        }
+
+        this.sessionRepository.addParticipants(sessionId, seated);
+        if (!waitlisted.isEmpty()) {
+            this.waitlistRepository.saveAll(waitlisted);
+        }
+        return outcomes;
+    }
+
+    /**
+     * Removes the user from the session or from its waitlist. A freed seat
+     * goes to the oldest waitlist entry in the same transaction.
+     *
+     * @throws OptimisticLockingFailureException if the session changed concurrently
+     */
+    @Transactional
+    public void noLongerParticipate(Long sessionId, Long userId) {
+        SessionCapacity session = claim(sessionId);
+
+        if (this.sessionRepository.removeParticipant(sessionId, userId) == 0) {
+            if (this.waitlistRepository.deleteBySessionIdAndUserId(sessionId, userId) == 0) {
+                throw new BadRequestException();
+            }
+            return;
+        }
+
+        while (hasFreeSeat(session)) {
+            WaitlistEntry next = this.waitlistRepository.findFirstBySessionIdOrderByIdAsc(sessionId).orElse(null);
+            if (next == null) {
+                return;
+            }
+            this.waitlistRepository.delete(next);
+            this.sessionRepository.addParticipant(sessionId, next.getUserId());
+        }
+    }
+
+    /**
+     * Reads the session and increments its version. Past this point no other
+     * transaction can change the session until this one ends.
+     */
+    private SessionCapacity claim(Long sessionId) {
+        SessionCapacity session = this.sessionRepository.findCapacity(sessionId).orElseThrow(NotFoundException::new);
+        if (this.sessionRepository.incrementVersion(sessionId, session.getVersion()) == 0) {
+            throw new OptimisticLockingFailureException("Session " + sessionId + " was changed concurrently");
+        }
+        return session;
+    }
+
+    private boolean hasFreeSeat(SessionCapacity session) {
+        return session.getCapacity() == null
+                || this.sessionRepository.countParticipants(session.getId()) < session.getCapacity();
+    }
+}
@@ -0,0 +1,262 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.projection.CollectionVersion;
+import com.openclassrooms.starterjwt.repository.projection.ParticipantId;
+import com.openclassrooms.starterjwt.repository.projection.SessionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable in-memory snapshot of every session summary, with its
+ * participant ids. Reads of an up-to-date snapshot take no lock and run no
+ * query.
+ * <p>
+ * Writes on this node call {@link #invalidate()}, which takes effect when
+ * their transaction commits; the next read then rebuilds the snapshot, so a
+ * user always sees their own change. Sign-ups only touch one session and call
+ * {@link #refresh(Long)} instead, which reloads that session alone. Readers
+ * arriving during a rebuild share it through a {@link SingleFlight} instead
+ * of each querying the database.
+ * Writes made by other nodes are picked up when the snapshot is older than
+ * {@code oc.app.sessionCatalogTtlMs}.
+ * <p>
+ * Rebuilds and coalesced reads are published as {@code sessions.catalog.loads}
+ * and {@code sessions.catalog.loads.coalesced}.
+ */
+@Component
+public class SessionCatalog implements MeterBinder {
+    private final SessionRepository sessionRepository;
+
+    private final long ttlMs;
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private final SingleFlight<Boolean, Snapshot> rebuilds = new SingleFlight<>();
+
+    private volatile Snapshot snapshot;
+
+    public SessionCatalog(SessionRepository sessionRepository,
+                          @Value("${oc.app.sessionCatalogTtlMs:5000}") long ttlMs) {
+        this.sessionRepository = sessionRepository;
+        this.ttlMs = ttlMs;
+    }
+
+    public Snapshot current() {
+        Snapshot current = this.snapshot;
+        if (isFresh(current)) {
+            return current;
+        }
+
+        // A rebuild that started before our write committed would not contain it: wait for the next one.
+        long wanted = this.generation.get();
+        Snapshot rebuilt;
+        do {
+            rebuilt = this.rebuilds.load(Boolean.TRUE, key -> rebuild());
+        } while (rebuilt.generation < wanted);
+        return rebuilt;
+    }
+
+    /**
+     * Marks the snapshot stale once the current transaction commits, or now if
+     * there is none. A rolled back write leaves the snapshot as it is.
+     */
+    public void invalidate() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    generation.incrementAndGet();
+                }
+            });
+        } else {
+            this.generation.incrementAndGet();
+        }
+    }
+
+    /**
+     * Reloads one session into the snapshot after a committed write, without
+     * rebuilding the others. Inside a transaction, or when the snapshot is
+     * stale anyway, this is the same as {@link #invalidate()}.
+     */
+    public void refresh(Long sessionId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive() || !isFresh(this.snapshot)) {
+            invalidate();
+            return;
+        }
+
+        SessionSummary session = load(sessionId);
+        synchronized (this) {
+            Snapshot current = this.snapshot;
+            if (!isFresh(current)) {
+                this.generation.incrementAndGet();
+                return;
+            }
+            // A concurrent refresh may already have stored a later version of this session.
+            SessionSummary stored = current.sessionsById.get(sessionId);
+            if (session != null && stored != null && session.getVersion() < stored.getVersion()) {
+                return;
+            }
+            // invalidate() does not take this lock: only publish if no write committed since the check above.
+            Snapshot patched = current.patch(current.generation + 1, sessionId, session);
+            if (this.generation.compareAndSet(current.generation, patched.generation)) {
+                this.snapshot = patched;
+            } else {
+                invalidate();
+            }
+        }
+    }
+
+    /** The snapshot if it is up to date, or null; never rebuilds it. */
+    public Snapshot currentIfFresh() {
+        Snapshot current = this.snapshot;
+        return isFresh(current) ? current : null;
+    }
+
+    /** One session with its participant ids, read from the database, or null if it does not exist. */
+    public SessionSummary load(Long sessionId) {
+        return this.sessionRepository.findSummaryById(sessionId)
+                .map(summary -> summary.withUsers(this.sessionRepository.findParticipantIds(List.of(sessionId)).stream()
+                        .map(ParticipantId::getUserId)
+                        .collect(Collectors.toUnmodifiableList())))
+                .orElse(null);
+    }
+
+    /** Snapshot rebuilds run against the database. */
+    public long getLoadCount() {
+        return this.rebuilds.getLoadCount();
+    }
+
+    /** Reads that waited for a rebuild already in flight instead of running their own. */
+    public long getCoalescedLoadCount() {
+        return this.rebuilds.getCoalescedCount();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("sessions.catalog.loads", this, SessionCatalog::getLoadCount)
+                .description("Catalogue rebuilds run against the database")
+                .register(registry);
+        FunctionCounter.builder("sessions.catalog.loads.coalesced", this, SessionCatalog::getCoalescedLoadCount)
+                .description("Reads that shared a rebuild already in flight")
+                .register(registry);
+    }
+
+    private Snapshot rebuild() {
+        Snapshot current = this.snapshot;
+        if (isFresh(current)) {
+            return current;
+        }
+
+        // Read before loading: a write committing during the load makes this snapshot stale right away.
+        long loadedGeneration = this.generation.get();
+        Snapshot loaded = new Snapshot(loadedGeneration, System.currentTimeMillis(),
+                this.sessionRepository.findAllSummaries(), this.sessionRepository.findAllParticipantIds());
+        this.snapshot = loaded;
+        return loaded;
+    }
+
+    private boolean isFresh(Snapshot snapshot) {
+        return snapshot != null
+                && snapshot.generation == this.generation.get()
+                && System.currentTimeMillis() - snapshot.loadedAt < this.ttlMs;
+    }
+
+    @Getter
+    public static final class Snapshot {
+        private final long generation;
+
+        private final long loadedAt;
+
+        private final List<SessionSummary> sessions;
+
+        private final Map<Long, SessionSummary> sessionsById;
+
+        /**
+         * Count, highest id and a digest of the id and version of every
+         * session; changes on every create, edit, delete and sign-up, and is
+         * the same on every node for the same sessions.
+         */
+        private final CollectionVersion version;
+
+        Snapshot(long generation, long loadedAt, List<SessionSummary> sessions, List<ParticipantId> participants) {
+            this(generation, loadedAt, withUsers(sessions, participants));
+        }
+
+        private Snapshot(long generation, long loadedAt, List<SessionSummary> sessions) {
+            this.generation = generation;
+            this.loadedAt = loadedAt;
+            this.sessions = Collections.unmodifiableList(sessions);
+
+            Map<Long, SessionSummary> byId = new LinkedHashMap<>();
+            this.sessions.forEach(session -> byId.put(session.getId(), session));
+            this.sessionsById = Collections.unmodifiableMap(byId);
+
+            this.version = new CollectionVersion((long) this.sessions.size(),
+                    this.sessions.stream().map(SessionSummary::getId).max(Long::compare).orElse(null),
+                    this.sessions.isEmpty() ? null : digest(this.sessions));
+        }
+
+        /**
+         * This snapshot with the session {@code id} replaced by {@code session},
+         * or removed when it is null. Keeps the load time, so writes of other
+         * nodes are still picked up after the TTL.
+         */
+        Snapshot patch(long generation, Long id, SessionSummary session) {
+            List<SessionSummary> patched = new ArrayList<>(this.sessions.size() + 1);
+            for (SessionSummary existing : this.sessions) {
+                if (!existing.getId().equals(id)) {
+                    patched.add(existing);
+                } else if (session != null) {
+                    patched.add(session);
+                }
+            }
+            if (session != null && !this.sessionsById.containsKey(id)) {
+                patched.add(session);
+            }
+            return new Snapshot(generation, this.loadedAt, patched);
+        }
+
+        private static List<SessionSummary> withUsers(List<SessionSummary> sessions, List<ParticipantId> participants) {
+            Map<Long, List<Long>> usersBySession = participants.stream()
+                    .collect(Collectors.groupingBy(ParticipantId::getSessionId,
+                            Collectors.mapping(ParticipantId::getUserId, Collectors.toUnmodifiableList())));
+            return sessions.stream()
+                    .map(session -> session.withUsers(usersBySession.getOrDefault(session.getId(), Collections.emptyList())))
+                    .collect(Collectors.toList());
+        }
+
+        private static String digest(List<SessionSummary> sessions) {
+            MessageDigest digest;
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+            ByteBuffer idAndVersion = ByteBuffer.allocate(2 * Long.BYTES);
+            for (SessionSummary session : sessions) {
+                idAndVersion.clear();
+                idAndVersion.putLong(session.getId()).putLong(session.getVersion());
+                digest.update(idAndVersion.array());
+            }
+            return String.format("%016x", ByteBuffer.wrap(digest.digest()).getLong());
+        }
+    }
+}
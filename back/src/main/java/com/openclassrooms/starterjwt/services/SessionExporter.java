@@ -0,0 +1,77 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.mapper.SessionMapper;
+import com.openclassrooms.starterjwt.repository.projection.SessionSummary;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Writes every session, with its participant ids, as newline-delimited JSON.
+ * Sessions are read in keyset chunks of date then id, so memory use does not
+ * grow with the number of sessions, and no connection is held while the
+ * client reads. Sessions changed during the export may or may not be in it.
+ */
+@Service
+public class SessionExporter {
+    private final SessionService sessionService;
+
+    private final SessionMapper sessionMapper;
+
+    private final ObjectWriter writer;
+
+    private final int chunkSize;
+
+    public SessionExporter(SessionService sessionService,
+                           SessionMapper sessionMapper,
+                           ObjectMapper objectMapper,
+                           @Value("${oc.app.sessionExportChunkSize:500}") int chunkSize) {
+        this.sessionService = sessionService;
+        this.sessionMapper = sessionMapper;
+        this.writer = objectMapper.writerFor(SessionDto.class)
+                .withRootValueSeparator("\n")
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Writes one line per session and flushes after each chunk. The generator
+     * puts the newline between sessions; the last line is terminated here. The
+     * stream is left open.
+     *
+     * @return the number of sessions written
+     */
+    public long export(OutputStream out) throws IOException {
+        long count = 0;
+        try (JsonGenerator generator = this.writer.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+            List<SessionSummary> chunk = this.sessionService.findPage(0, this.chunkSize);
+            while (!chunk.isEmpty()) {
+                for (SessionDto sessionDto : this.sessionMapper.summariesToDto(chunk)) {
+                    this.writer.writeValue(generator, sessionDto);
+                }
+                generator.flush();
+                count += chunk.size();
+
+                if (chunk.size() < this.chunkSize) {
+                    break;
+                }
+                SessionSummary last = chunk.get(chunk.size() - 1);
+                chunk = this.sessionService.findAfter(last.getDate(), last.getId(), this.chunkSize);
+            }
+            if (count > 0) {
+                generator.writeRaw('\n');
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,155 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.mapper.SessionMapper;
+import com.openclassrooms.starterjwt.payload.response.SessionImportResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Creates sessions from a JSON array or from newline-delimited JSON objects.
+ * The body is read one item at a time, so only the current batch is held in
+ * memory. Each batch is written in its own transaction: an item that fails
+ * is reported by its index and does not prevent the others from being
+ * imported.
+ */
+@Service
+public class SessionImporter {
+    private final ObjectMapper objectMapper;
+
+    private final Validator validator;
+
+    private final SessionMapper sessionMapper;
+
+    private final SessionService sessionService;
+
+    private final int batchSize;
+
+    public SessionImporter(ObjectMapper objectMapper,
+                           Validator validator,
+                           SessionMapper sessionMapper,
+                           SessionService sessionService,
+                           @Value("${oc.app.sessionImportBatchSize:50}") int batchSize) {
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.sessionMapper = sessionMapper;
+        this.sessionService = sessionService;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Imports every valid item of the body. Malformed JSON stops the import at
+     * that item; the batches before it stay imported.
+     */
+    public SessionImportResponse importSessions(InputStream body) throws IOException {
+        SessionImportResponse response = new SessionImportResponse();
+        List<SessionDto> batch = new ArrayList<>(this.batchSize);
+        List<Integer> batchIndexes = new ArrayList<>(this.batchSize);
+
+        int index = 0;
+        try (MappingIterator<JsonNode> items = this.objectMapper.readerFor(JsonNode.class).readValues(body)) {
+            JsonNode item;
+            while ((item = next(items, index, response)) != null) {
+                SessionDto sessionDto = read(item, index, response);
+                if (sessionDto != null) {
+                    batch.add(sessionDto);
+                    batchIndexes.add(index);
+                }
+                if (batch.size() == this.batchSize) {
+                    save(batch, batchIndexes, response);
+                }
+                index++;
+            }
+        }
+        save(batch, batchIndexes, response);
+        return response;
+    }
+
+    private JsonNode next(MappingIterator<JsonNode> items, int index, SessionImportResponse response) throws IOException {
+        try {
+            return items.hasNextValue() ? items.nextValue() : null;
+        } catch (JsonProcessingException e) {
+            response.addError(index, "Malformed JSON: " + e.getOriginalMessage());
+            return null;
+        }
+    }
+
+    private SessionDto read(JsonNode item, int index, SessionImportResponse response) {
+        SessionDto sessionDto;
+        try {
+            sessionDto = this.objectMapper.treeToValue(item, SessionDto.class);
+        } catch (JsonProcessingException e) {
+            response.addError(index, e.getOriginalMessage());
+            return null;
+        }
+        if (sessionDto == null) {
+            response.addError(index, "Expected a session object");
+            return null;
+        }
+
+        Set<ConstraintViolation<SessionDto>> violations = this.validator.validate(sessionDto);
+        if (!violations.isEmpty()) {
+            response.addError(index, violations.stream()
+                    .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", ")));
+            return null;
+        }
+        if (sessionDto.getCapacity() != null && sessionDto.getUsers() != null
+                && sessionDto.getUsers().size() > sessionDto.getCapacity()) {
+            response.addError(index, "users must not exceed capacity");
+            return null;
+        }
+
+        sessionDto.setId(null);
+        sessionDto.setVersion(null);
+        sessionDto.setCreatedAt(null);
+        sessionDto.setUpdatedAt(null);
+        return sessionDto;
+    }
+
+    /**
+     * Saves the batch in one transaction. If one of its items references an
+     * unknown teacher or user, or is refused by the database (e.g. a value
+     * longer than its column), the batch is rolled back and its items are
+     * saved one by one instead, to find out which.
+     */
+    private void save(List<SessionDto> batch, List<Integer> batchIndexes, SessionImportResponse response) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            response.addImported(this.sessionService.createAll(this.sessionMapper.toEntity(batch)).size());
+        } catch (BadRequestException | DataAccessException e) {
+            for (int i = 0; i < batch.size(); i++) {
+                try {
+                    this.sessionService.createAll(this.sessionMapper.toEntity(Collections.singletonList(batch.get(i))));
+                    response.addImported(1);
+                } catch (BadRequestException itemError) {
+                    response.addError(batchIndexes.get(i), "Unknown teacher or user");
+                } catch (DataAccessException itemError) {
+                    response.addError(batchIndexes.get(i), "Rejected by the database: "
+                            + itemError.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+        batch.clear();
+        batchIndexes.clear();
+    }
+}
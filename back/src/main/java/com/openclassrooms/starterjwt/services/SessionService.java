@@ -1,78 +1,265 @@
 package com.openclassrooms.starterjwt.services;
 
 import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.exception.ConflictException;
 import com.openclassrooms.starterjwt.exception.NotFoundException;
 import com.openclassrooms.starterjwt.models.Session;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.models.WaitlistEntry;
 import com.openclassrooms.starterjwt.repository.SessionRepository;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.repository.WaitlistRepository;
+import com.openclassrooms.starterjwt.repository.projection.CollectionVersion;
+import com.openclassrooms.starterjwt.repository.projection.ParticipantId;
+import com.openclassrooms.starterjwt.repository.projection.SessionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
+/**
+ * Sessions and their participants. Listings are served from the
+ * {@link SessionCatalog}; reads of one session that miss it share a
+ * {@link SingleFlight} per session id, published as
+ * {@code sessions.reads.loads} and {@code sessions.reads.loads.coalesced}.
+ */
 @Service
-public class SessionService {
+public class SessionService implements MeterBinder {
     private final SessionRepository sessionRepository;
 
+    private final WaitlistRepository waitlistRepository;
+
     private final UserRepository userRepository;
 
-    public SessionService(SessionRepository sessionRepository, UserRepository userRepository) {
+    private final SignupCoordinator signupCoordinator;
+
+    private final SessionCatalog sessionCatalog;
+
+    private final SingleFlight<Long, Optional<SessionSummary>> sessionLoads = new SingleFlight<>();
+
+    public SessionService(SessionRepository sessionRepository,
+                          WaitlistRepository waitlistRepository,
+                          UserRepository userRepository,
+                          SignupCoordinator signupCoordinator,
+                          SessionCatalog sessionCatalog) {
         this.sessionRepository = sessionRepository;
+        this.waitlistRepository = waitlistRepository;
         this.userRepository = userRepository;
+        this.signupCoordinator = signupCoordinator;
+        this.sessionCatalog = sessionCatalog;
     }
 
+    /**
+     * Saves a new session. A session with more participants than its capacity
+     * is rejected with a {@link BadRequestException}.
+     */
     public Session create(Session session) {
-        return this.sessionRepository.save(session);
+        requireWithinCapacity(session);
+        Session created = this.sessionRepository.save(session);
+        this.sessionCatalog.invalidate();
+        return created;
+    }
+
+    /**
+     * Saves the sessions in one transaction, so their inserts go out as JDBC
+     * batches. Either all of them are created or none: one session with more
+     * participants than its capacity rejects the whole list with a
+     * {@link BadRequestException}.
+     */
+    @Transactional
+    public List<Session> createAll(List<Session> sessions) {
+        sessions.forEach(SessionService::requireWithinCapacity);
+        List<Session> created = this.sessionRepository.saveAll(sessions);
+        this.sessionCatalog.invalidate();
+        return created;
     }
 
+    @Transactional
     public void delete(Long id) {
+        this.waitlistRepository.deleteBySessionId(id);
         this.sessionRepository.deleteById(id);
+        this.sessionCatalog.invalidate();
+    }
+
+    /**
+     * All sessions as summaries, served from the {@link SessionCatalog}
+     * snapshot.
+     */
+    public List<SessionSummary> findAll() {
+        return this.sessionCatalog.current().getSessions();
+    }
+
+    /**
+     * The session summary, or null if it does not exist. Served from the
+     * {@link SessionCatalog} snapshot when it is up to date; otherwise only
+     * this session is read, once for all the concurrent reads of its id.
+     */
+    public SessionSummary findSummary(Long id) {
+        SessionCatalog.Snapshot snapshot = this.sessionCatalog.currentIfFresh();
+        if (snapshot != null) {
+            return snapshot.getSessionsById().get(id);
+        }
+        return this.sessionLoads.load(id, key -> Optional.ofNullable(this.sessionCatalog.load(key))).orElse(null);
+    }
+
+    /** Reads of one session run against the database. */
+    public long getSessionLoadCount() {
+        return this.sessionLoads.getLoadCount();
+    }
+
+    /** Reads of one session that shared a load of the same id already in flight. */
+    public long getCoalescedSessionLoadCount() {
+        return this.sessionLoads.getCoalescedCount();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("sessions.reads.loads", this, SessionService::getSessionLoadCount)
+                .description("Reads of one session run against the database")
+                .register(registry);
+        FunctionCounter.builder("sessions.reads.loads.coalesced", this, SessionService::getCoalescedSessionLoadCount)
+                .description("Reads of one session that shared a load already in flight")
+                .register(registry);
+    }
+
+    public CollectionVersion getCollectionVersion() {
+        return this.sessionCatalog.current().getVersion();
+    }
+
+    /**
+     * Sessions ordered by date then id, one page at a time. No count query is
+     * run, so the cost does not grow with the number of sessions.
+     */
+    public List<SessionSummary> findPage(int page, int size) {
+        return withParticipants(this.sessionRepository.findSummaryPage(PageRequest.of(page, size)));
     }
 
-    public List<Session> findAll() {
-        return this.sessionRepository.findAll();
+    /**
+     * The {@code size} sessions following the session ({@code date}, {@code id})
+     * in date then id order. Unlike {@link #findPage(int, int)}, deep pages do
+     * not scan the rows before them.
+     */
+    public List<SessionSummary> findAfter(Date date, Long id, int size) {
+        return withParticipants(this.sessionRepository.findSummariesAfter(date, id, PageRequest.of(0, size)));
     }
 
     public Session getById(Long id) {
         return this.sessionRepository.findById(id).orElse(null);
     }
 
+    /**
+     * Copies the edited fields onto the stored session. Participants change
+     * through {@link #participate} and {@link #noLongerParticipate} only: a
+     * users list other than the current one, or a capacity below the number
+     * of participants, is rejected with a {@link BadRequestException}. An edit
+     * without a capacity keeps the stored one. Seats added by a larger
+     * capacity go to the oldest waitlist entries. The edit
+     * is rejected with a {@link ConflictException} when its version is not
+     * the stored one, or when the session changes before the edit is written.
+     */
+    @Transactional
     public Session update(Long id, Session session) {
-        session.setId(id);
-        return this.sessionRepository.save(session);
-    }
-
-    public void participate(Long id, Long userId) {
-        Session session = this.sessionRepository.findById(id).orElse(null);
-        User user = this.userRepository.findById(userId).orElse(null);
-        if (session == null || user == null) {
-            throw new NotFoundException();
+        Session existing = this.sessionRepository.findById(id).orElseThrow(NotFoundException::new);
+        if (session.getVersion() != null && !session.getVersion().equals(existing.getVersion())) {
+            throw new ConflictException();
         }
-
-        boolean alreadyParticipate = session.getUsers().stream().anyMatch(o -> o.getId().equals(userId));
-        if(alreadyParticipate) {
+        if (existing.getUsers() == null) {
+            existing.setUsers(new ArrayList<>());
+        }
+        if (session.getUsers() != null && !userIds(session.getUsers()).equals(userIds(existing.getUsers()))) {
+            throw new BadRequestException();
+        }
+        if (session.getCapacity() != null && existing.getUsers().size() > session.getCapacity()) {
             throw new BadRequestException();
         }
 
-        session.getUsers().add(user);
+        existing.setName(session.getName())
+                .setDate(session.getDate())
+                .setDescription(session.getDescription())
+                .setTeacher(session.getTeacher());
+        if (session.getCapacity() != null) {
+            existing.setCapacity(session.getCapacity());
+        }
+        promoteWaitlisted(existing);
+
+        try {
+            Session updated = this.sessionRepository.saveAndFlush(existing);
+            this.sessionCatalog.invalidate();
+            return updated;
+        } catch (OptimisticLockingFailureException e) {
+            throw new ConflictException();
+        }
+    }
 
-        this.sessionRepository.save(session);
+    /**
+     * Signs the user up for the session, or puts them on its waitlist when the
+     * session is full. Concurrent sign-ups for one session are combined by
+     * {@link SignupCoordinator} into a single transaction.
+     */
+    public ParticipationStatus participate(Long id, Long userId) {
+        ParticipationStatus status = this.signupCoordinator.participate(id, userId);
+        this.sessionCatalog.refresh(id);
+        return status;
     }
 
+    /**
+     * Removes the user from the session or from its waitlist. A freed seat
+     * goes to the oldest waitlist entry.
+     */
     public void noLongerParticipate(Long id, Long userId) {
-        Session session = this.sessionRepository.findById(id).orElse(null);
-        if (session == null) {
-            throw new NotFoundException();
+        this.signupCoordinator.noLongerParticipate(id, userId);
+        this.sessionCatalog.refresh(id);
+    }
+
+    private void promoteWaitlisted(Session session) {
+        while (session.getCapacity() == null || session.getUsers().size() < session.getCapacity()) {
+            WaitlistEntry next = this.waitlistRepository.findFirstBySessionIdOrderByIdAsc(session.getId()).orElse(null);
+            if (next == null) {
+                return;
+            }
+            this.waitlistRepository.delete(next);
+            session.getUsers().add(this.userRepository.getById(next.getUserId()));
         }
+    }
 
-        boolean alreadyParticipate = session.getUsers().stream().anyMatch(o -> o.getId().equals(userId));
-        if(!alreadyParticipate) {
+    private static void requireWithinCapacity(Session session) {
+        if (session.getCapacity() != null && session.getUsers() != null
+                && session.getUsers().size() > session.getCapacity()) {
             throw new BadRequestException();
         }
+    }
+
+    private static Set<Long> userIds(List<User> users) {
+        return users.stream().map(User::getId).collect(Collectors.toSet());
+    }
+
+    private List<SessionSummary> withParticipants(List<SessionSummary> sessions) {
+        if (sessions.isEmpty()) {
+            return sessions;
+        }
+        List<Long> sessionIds = sessions.stream().map(SessionSummary::getId).collect(Collectors.toList());
+        return withParticipants(sessions, this.sessionRepository.findParticipantIds(sessionIds));
+    }
 
-        session.setUsers(session.getUsers().stream().filter(user -> !user.getId().equals(userId)).collect(Collectors.toList()));
+    private List<SessionSummary> withParticipants(List<SessionSummary> sessions, List<ParticipantId> participants) {
+        Map<Long, List<Long>> usersBySession = participants.stream()
+                .collect(Collectors.groupingBy(ParticipantId::getSessionId,
+                        Collectors.mapping(ParticipantId::getUserId, Collectors.toList())));
 
-        this.sessionRepository.save(session);
+        return sessions.stream()
+                .map(session -> session.withUsers(usersBySession.getOrDefault(session.getId(), Collections.emptyList())))
+                .collect(Collectors.toList());
     }
 }
@@ -0,0 +1,173 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.exception.ConflictException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Funnels the participation writes of this node through a fixed set of
+ * lock stripes chosen by session id, so a hot session is written by one
+ * thread at a time instead of having every request queue on its row lock.
+ * <p>
+ * Sign-ups are flat-combined: a caller enqueues its sign-up, takes the
+ * stripe lock and, unless an earlier holder already handled it, writes
+ * everything pending on the stripe with one {@link ParticipationWriter}
+ * transaction per session. Callers that arrive while a batch is being written
+ * are served together by the next lock holder.
+ * <p>
+ * The stripes only reduce contention within one JVM; correctness across
+ * nodes comes from the version check of {@link ParticipationWriter}. Writes
+ * that lose that check, to another node or to an admin edit, are retried
+ * up to {@value #MAX_ATTEMPTS} times before failing with a
+ * {@link ConflictException}.
+ * <p>
+ * {@code sessions.signups} over {@code sessions.signup.batches} is the
+ * average number of sign-ups written per transaction.
+ */
+@Component
+public class SignupCoordinator implements MeterBinder {
+    static final int STRIPES = 64;
+
+    static final int MAX_ATTEMPTS = 5;
+
+    private final ParticipationWriter participationWriter;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    private final AtomicLong signUpCount = new AtomicLong();
+
+    private final AtomicLong batchCount = new AtomicLong();
+
+    public SignupCoordinator(ParticipationWriter participationWriter) {
+        this.participationWriter = participationWriter;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    public ParticipationStatus participate(Long sessionId, Long userId) {
+        SignUp signUp = new SignUp(sessionId, userId);
+        Stripe stripe = stripeFor(sessionId);
+        stripe.pending.add(signUp);
+
+        stripe.lock.lock();
+        try {
+            if (signUp.outcome == null) {
+                combine(stripe);
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+        return signUp.outcome.get();
+    }
+
+    public void noLongerParticipate(Long sessionId, Long userId) {
+        Stripe stripe = stripeFor(sessionId);
+        stripe.lock.lock();
+        try {
+            withRetry(() -> {
+                participationWriter.noLongerParticipate(sessionId, userId);
+                return null;
+            });
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    public long getSignUpCount() {
+        return signUpCount.get();
+    }
+
+    /** Number of write transactions used for those sign-ups. */
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("sessions.signups", this, SignupCoordinator::getSignUpCount)
+                .description("Sign-ups written by this node")
+                .register(registry);
+        FunctionCounter.builder("sessions.signup.batches", this, SignupCoordinator::getBatchCount)
+                .description("Write transactions used for those sign-ups")
+                .register(registry);
+    }
+
+    /** Sign-ups queued on the stripe of this session, waiting for the lock holder. */
+    int pendingSignUps(Long sessionId) {
+        return stripeFor(sessionId).pending.size();
+    }
+
+    private void combine(Stripe stripe) {
+        Map<Long, List<SignUp>> bySession = new LinkedHashMap<>();
+        SignUp next;
+        while ((next = stripe.pending.poll()) != null) {
+            bySession.computeIfAbsent(next.sessionId, id -> new ArrayList<>()).add(next);
+        }
+
+        bySession.forEach((sessionId, signUps) -> {
+            List<Long> userIds = new ArrayList<>(signUps.size());
+            signUps.forEach(signUp -> userIds.add(signUp.userId));
+
+            try {
+                List<ParticipationOutcome> outcomes = withRetry(() -> participationWriter.participateAll(sessionId, userIds));
+                for (int i = 0; i < signUps.size(); i++) {
+                    signUps.get(i).outcome = outcomes.get(i);
+                }
+            } catch (RuntimeException e) {
+                signUps.forEach(signUp -> signUp.outcome = ParticipationOutcome.failed(e));
+            }
+            signUpCount.addAndGet(signUps.size());
+            batchCount.incrementAndGet();
+        });
+    }
+
+    private <T> T withRetry(Supplier<T> write) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return write.get();
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= MAX_ATTEMPTS) {
+                    throw new ConflictException();
+                }
+            }
+        }
+    }
+
+    private Stripe stripeFor(Long sessionId) {
+        return stripes[Math.floorMod(sessionId.hashCode(), STRIPES)];
+    }
+
+    private static final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private final Queue<SignUp> pending = new ConcurrentLinkedQueue<>();
+    }
+
+    private static final class SignUp {
+        private final Long sessionId;
+
+        private final Long userId;
+
+        /** Set by the lock holder that wrote it; read after taking the same lock. */
+        private ParticipationOutcome outcome;
+
+        private SignUp(Long sessionId, Long userId) {
+            this.sessionId = sessionId;
+            this.userId = userId;
+        }
+    }
+}
@@ -1,24 +1,94 @@
 package com.openclassrooms.starterjwt.services;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
 import com.openclassrooms.starterjwt.models.Teacher;
 import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import com.openclassrooms.starterjwt.repository.projection.CollectionVersion;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Objects;
 
+/**
+ * Teachers are read on every session create and update, and the list on every
+ * page load, but change a few times a year. Both are kept in per-node Caffeine
+ * caches for {@code oc.app.teacherCacheTtlMs}, so that edits made directly in
+ * the database are picked up; writes through this node must call
+ * {@link #evictAll()}. Cached teachers are shared and must not be modified.
+ */
 @Service
 public class TeacherService {
+    private static final Boolean ALL = Boolean.TRUE;
+
     private final TeacherRepository teacherRepository;
 
-    public TeacherService(TeacherRepository teacherRepository) {
+    private final Cache<Long, Teacher> teachersById;
+
+    private final LoadingCache<Boolean, Teachers> allTeachers;
+
+    public TeacherService(TeacherRepository teacherRepository,
+                          @Value("${oc.app.teacherCacheTtlMs:600000}") long ttlMs,
+                          @Value("${oc.app.teacherCacheMaxSize:1000}") long maxSize) {
         this.teacherRepository = teacherRepository;
+        this.teachersById = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        this.allTeachers = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .recordStats()
+                .build(key -> loadAll());
     }
 
     public List<Teacher> findAll() {
-        return this.teacherRepository.findAll();
+        return this.allTeachers.get(ALL).teachers;
     }
 
+    /**
+     * Unknown ids are not cached, so a teacher added in the database is found
+     * on the next call.
+     */
     public Teacher findById(Long id) {
-        return this.teacherRepository.findById(id).orElse(null);
+        return this.teachersById.get(id, key -> this.teacherRepository.findById(key).orElse(null));
+    }
+
+    /**
+     * Count, highest id and latest update of the cached teachers, for the
+     * list ETag.
+     */
+    public CollectionVersion getCollectionVersion() {
+        return this.allTeachers.get(ALL).version;
+    }
+
+    public void evictAll() {
+        this.allTeachers.invalidateAll();
+        this.teachersById.invalidateAll();
+    }
+
+    private Teachers loadAll() {
+        List<Teacher> teachers = List.copyOf(this.teacherRepository.findAll());
+        teachers.forEach(teacher -> this.teachersById.put(teacher.getId(), teacher));
+        return new Teachers(teachers);
+    }
+
+    private static final class Teachers {
+        private final List<Teacher> teachers;
+
+        private final CollectionVersion version;
+
+        Teachers(List<Teacher> teachers) {
+            this.teachers = teachers;
+            this.version = new CollectionVersion((long) teachers.size(),
+                    teachers.stream().map(Teacher::getId).max(Long::compare).orElse(null),
+                    teachers.stream().map(Teacher::getUpdatedAt).filter(Objects::nonNull)
+                            .max(Comparator.naturalOrder()).orElse((LocalDateTime) null));
+        }
     }
 }
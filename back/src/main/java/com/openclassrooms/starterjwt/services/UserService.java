@@ -1,22 +1,93 @@
 package com.openclassrooms.starterjwt.services;
 
+import com.openclassrooms.starterjwt.exception.BadRequestException;
 import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.repository.WaitlistRepository;
+import com.openclassrooms.starterjwt.security.jwt.TokenRevocationList;
+import com.openclassrooms.starterjwt.security.services.UserDetailsCache;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class UserService {
     private final UserRepository userRepository;
 
-    public UserService(UserRepository userRepository) {
+    private final WaitlistRepository waitlistRepository;
+
+    private final UserDetailsCache userDetailsCache;
+
+    private final TokenRevocationList tokenRevocationList;
+
+    public UserService(UserRepository userRepository,
+                       WaitlistRepository waitlistRepository,
+                       UserDetailsCache userDetailsCache,
+                       TokenRevocationList tokenRevocationList) {
         this.userRepository = userRepository;
+        this.waitlistRepository = waitlistRepository;
+        this.userDetailsCache = userDetailsCache;
+        this.tokenRevocationList = tokenRevocationList;
     }
 
+    /**
+     * Deletes the user and the waitlist entries that still reference them. The
+     * cached user details are evicted once the deletion commits, so a request
+     * reading the user in the meantime cannot cache them again.
+     */
+    @Transactional
     public void delete(Long id) {
+        this.waitlistRepository.deleteByUserId(id);
         this.userRepository.deleteById(id);
+        this.tokenRevocationList.revoke(id);
+        evictAfterCommit(id);
+    }
+
+    private void evictAfterCommit(Long id) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    userDetailsCache.evictById(id);
+                }
+            });
+        } else {
+            this.userDetailsCache.evictById(id);
+        }
     }
 
     public User findById(Long id) {
         return this.userRepository.findById(id).orElse(null);
     }
+
+    /**
+     * Loads the users with these ids in a single query, keyed by id.
+     *
+     * @throws BadRequestException if any of the ids does not match a user
+     */
+    public Map<Long, User> findAllById(Collection<Long> ids) {
+        Set<Long> distinctIds = new LinkedHashSet<>(ids);
+        if (distinctIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        if (distinctIds.contains(null)) {
+            throw new BadRequestException();
+        }
+
+        Map<Long, User> users = this.userRepository.findAllById(distinctIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        if (users.size() != distinctIds.size()) {
+            throw new BadRequestException();
+        }
+        return users;
+    }
 }
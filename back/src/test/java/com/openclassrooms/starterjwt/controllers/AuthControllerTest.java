@@ -3,9 +3,11 @@ package com.openclassrooms.starterjwt.controllers;
 import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.payload.request.LoginRequest;
 import com.openclassrooms.starterjwt.payload.request.SignupRequest;
+import com.openclassrooms.starterjwt.payload.response.JwtResponse;
 import com.openclassrooms.starterjwt.payload.response.MessageResponse;
 import com.openclassrooms.starterjwt.repository.UserRepository;
 import com.openclassrooms.starterjwt.security.jwt.JwtUtils;
+import com.openclassrooms.starterjwt.security.services.UserDetailsCache;
 import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -20,8 +22,6 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
-import java.util.Optional;
-
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.*;
 
@@ -43,6 +43,9 @@ public class AuthControllerTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private UserDetailsCache userDetailsCache;
+
     @Mock
     private Authentication authentication;
 
@@ -59,25 +62,23 @@ public class AuthControllerTest {
                 .username("test@example.com")
                 .firstName("John")
                 .lastName("Doe")
-                .admin(false)
+                .admin(true)
                 .build();
 
-        User user = new User();
-        user.setAdmin(false);
-
         // Mock
         when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
                 .thenReturn(authentication);
         when(authentication.getPrincipal()).thenReturn(userDetails);
         when(jwtUtils.generateJwtToken(authentication)).thenReturn("jwt-token");
-        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(user));
 
         // Act
         ResponseEntity<?> result = authController.authenticateUser(loginRequest);
 
         // Assert
         assertEquals(HttpStatus.OK, result.getStatusCode());
+        assertEquals(true, ((JwtResponse) result.getBody()).getAdmin());
         verify(authenticationManager).authenticate(any(UsernamePasswordAuthenticationToken.class));
+        verify(userRepository, never()).findByEmail(any());
     }
 
     @Test
@@ -99,6 +100,7 @@ public class AuthControllerTest {
         // Assert
         assertEquals(HttpStatus.OK, result.getStatusCode());
         verify(userRepository).save(any(User.class));
+        verify(userDetailsCache).evict("test@example.com");
     }
 
     @Test
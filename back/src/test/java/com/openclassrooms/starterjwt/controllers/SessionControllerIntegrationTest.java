@@ -4,6 +4,9 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.openclassrooms.starterjwt.dto.SessionDto;
 import com.openclassrooms.starterjwt.models.Session;
 import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.repository.projection.CollectionVersion;
+import com.openclassrooms.starterjwt.repository.projection.SessionSummary;
+import com.openclassrooms.starterjwt.services.ParticipationStatus;
 import com.openclassrooms.starterjwt.services.SessionService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -26,6 +29,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -49,36 +53,24 @@ class SessionControllerIntegrationTest {
         LocalDateTime now = LocalDateTime.now();
         Date testDate = new Date();
 
-        Teacher teacher = Teacher.builder()
-                .id(1L)
-                .firstName("John")
-                .lastName("Doe")
-                .build();
+        SessionSummary session = new SessionSummary(1L, "Yoga Session", testDate,
+                "A yoga session for beginners", 1L, null, List.of(2L), 4L, now, now);
 
-        Session session = Session.builder()
-                .id(1L)
-                .name("Yoga Session")
-                .date(testDate)
-                .description("A yoga session for beginners")
-                .teacher(teacher)
-                .users(new ArrayList<>())
-                .createdAt(now)
-                .updatedAt(now)
-                .build();
-
-        when(sessionService.getById(1L)).thenReturn(session);
+        when(sessionService.findSummary(1L)).thenReturn(session);
 
         // Act & Assert
         mockMvc.perform(get("/api/session/1")
                         .contentType(MediaType.APPLICATION_JSON))
-                .andExpect(status().isOk());
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"session-1-4\""))
+                .andExpect(jsonPath("$.users[0]").value(2));
     }
 
     @Test
     @WithMockUser(username = "UserMock")
     void findById_NonExistingId_ReturnsNotFound() throws Exception {
         // Arrange
-        when(sessionService.getById(99L)).thenReturn(null);
+        when(sessionService.findSummary(99L)).thenReturn(null);
 
         // Act & Assert
         mockMvc.perform(get("/api/session/99")
@@ -104,42 +96,40 @@ class SessionControllerIntegrationTest {
         LocalDateTime now = LocalDateTime.now();
         Date testDate = new Date();
 
-        Teacher teacher = Teacher.builder()
-                .id(1L)
-                .firstName("John")
-                .lastName("Doe")
-                .build();
+        SessionSummary session1 = new SessionSummary(1L, "Yoga Session", testDate,
+                "A yoga session for beginners", 1L, null, List.of(2L, 3L), 0L, now, now);
+        SessionSummary session2 = new SessionSummary(2L, "Meditation Session", testDate,
+                "A meditation session for everyone", 1L, 10, List.of(), 0L, now, now);
 
-        Session session1 = Session.builder()
-                .id(1L)
-                .name("Yoga Session")
-                .date(testDate)
-                .description("A yoga session for beginners")
-                .teacher(teacher)
-                .users(new ArrayList<>())
-                .createdAt(now)
-                .updatedAt(now)
-                .build();
-
-        Session session2 = Session.builder()
-                .id(2L)
-                .name("Meditation Session")
-                .date(testDate)
-                .description("A meditation session for everyone")
-                .teacher(teacher)
-                .users(new ArrayList<>())
-                .createdAt(now)
-                .updatedAt(now)
-                .build();
-
-        List<Session> sessions = Arrays.asList(session1, session2);
+        List<SessionSummary> sessions = Arrays.asList(session1, session2);
 
         when(sessionService.findAll()).thenReturn(sessions);
+        when(sessionService.getCollectionVersion()).thenReturn(new CollectionVersion(2L, 2L, "0"));
 
         // Act & Assert
         mockMvc.perform(get("/api/session")
                         .contentType(MediaType.APPLICATION_JSON))
-                .andExpect(status().isOk());
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"sessions-2-2-0\""))
+                .andExpect(jsonPath("$[0].teacher_id").value(1))
+                .andExpect(jsonPath("$[0].users[1]").value(3));
+    }
+
+    @Test
+    @WithMockUser(username = "UserMock", roles = {"USER"})
+    void findAll_WithSize_ReturnsPage() throws Exception {
+        // Arrange
+        SessionSummary session = new SessionSummary(3L, "Yoga Session", new Date(1700000000000L),
+                "A yoga session for beginners", null, null, null, null, null);
+
+        when(sessionService.findPage(0, 1)).thenReturn(List.of(session));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/session?size=1")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", "1700000000000_3"))
+                .andExpect(jsonPath("$[0].id").value(3));
     }
 
     @Test
@@ -264,6 +254,18 @@ class SessionControllerIntegrationTest {
         verify(sessionService).participate(1L, 2L);
     }
 
+    @Test
+    @WithMockUser(username = "UserMock")
+    void participate_FullSession_ReturnsAccepted() throws Exception {
+        when(sessionService.participate(1L, 2L)).thenReturn(ParticipationStatus.WAITLISTED);
+
+        // Act & Assert
+        mockMvc.perform(post("/api/session/1/participate/2")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.message").exists());
+    }
+
     @Test
     @WithMockUser(username = "UserMock")
     void noLongerParticipate_ValidIds_ReturnsOk() throws Exception {
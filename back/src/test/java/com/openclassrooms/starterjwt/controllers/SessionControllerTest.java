@@ -4,7 +4,16 @@ import com.openclassrooms.starterjwt.dto.SessionDto;
 import com.openclassrooms.starterjwt.mapper.SessionMapper;
 import com.openclassrooms.starterjwt.models.Session;
 import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.payload.response.MessageResponse;
+import com.openclassrooms.starterjwt.payload.response.SessionImportResponse;
+import com.openclassrooms.starterjwt.repository.projection.CollectionVersion;
+import com.openclassrooms.starterjwt.repository.projection.SessionSummary;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import com.openclassrooms.starterjwt.services.ParticipationStatus;
+import com.openclassrooms.starterjwt.services.SessionExporter;
+import com.openclassrooms.starterjwt.services.SessionImporter;
 import com.openclassrooms.starterjwt.services.SessionService;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -13,7 +22,15 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDateTime;
 import java.util.*;
 
@@ -27,6 +44,10 @@ class SessionControllerTest {
     private SessionService sessionService;
     @Mock
     private SessionMapper sessionMapper;
+    @Mock
+    private SessionImporter sessionImporter;
+    @Mock
+    private SessionExporter sessionExporter;
 
     @InjectMocks
     private SessionController sessionController;
@@ -41,32 +62,49 @@ class SessionControllerTest {
         sessionDto = createSessionDto();
     }
 
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
     @Test
     void findById_ValidId_ReturnsSession() {
-        when(sessionService.getById(1L)).thenReturn(session);
-        when(sessionMapper.toDto(session)).thenReturn(sessionDto);
+        SessionSummary summary = createSummary();
+        when(sessionService.findSummary(1L)).thenReturn(summary);
+        when(sessionMapper.toDto(summary)).thenReturn(sessionDto);
 
-        ResponseEntity<?> response = sessionController.findById("1");
+        ResponseEntity<?> response = sessionController.findById("1", webRequest(null));
 
         assertSuccessResponse(response, sessionDto);
-        verify(sessionService).getById(1L);
-        verify(sessionMapper).toDto(session);
+        assertEquals("\"session-1-0\"", response.getHeaders().getETag());
+        verify(sessionService).findSummary(1L);
+        verify(sessionMapper).toDto(summary);
+    }
+
+    @Test
+    void findById_MatchingETag_ReturnsNotModified() {
+        when(sessionService.findSummary(1L)).thenReturn(createSummary());
+
+        ResponseEntity<?> response = sessionController.findById("1", webRequest("\"session-1-0\""));
+
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        verifyNoInteractions(sessionMapper);
     }
 
     @Test
     void findById_NonExistingId_ReturnsNotFound() {
-        when(sessionService.getById(99L)).thenReturn(null);
+        when(sessionService.findSummary(99L)).thenReturn(null);
 
-        ResponseEntity<?> response = sessionController.findById("99");
+        ResponseEntity<?> response = sessionController.findById("99", webRequest(null));
 
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
-        verify(sessionService).getById(99L);
+        verify(sessionService).findSummary(99L);
         verifyNoInteractions(sessionMapper);
     }
 
     @Test
     void findById_InvalidId_ReturnsBadRequest() {
-        ResponseEntity<?> response = sessionController.findById("invalid");
+        ResponseEntity<?> response = sessionController.findById("invalid", webRequest(null));
 
         assertBadRequest(response);
         verifyNoInteractions(sessionService, sessionMapper);
@@ -74,17 +112,79 @@ class SessionControllerTest {
 
     @Test
     void findAll_ReturnsAllSessions() {
-        List<Session> sessions = Collections.singletonList(session);
+        List<SessionSummary> sessions = Collections.singletonList(createSummary());
         List<SessionDto> sessionDtos = Collections.singletonList(sessionDto);
 
+        when(sessionService.getCollectionVersion()).thenReturn(new CollectionVersion(1L, 1L, "0"));
         when(sessionService.findAll()).thenReturn(sessions);
-        when(sessionMapper.toDto(sessions)).thenReturn(sessionDtos);
+        when(sessionMapper.summariesToDto(sessions)).thenReturn(sessionDtos);
 
-        ResponseEntity<?> response = sessionController.findAll();
+        ResponseEntity<?> response = sessionController.findAll(webRequest("\"sessions-0-null-null\""));
 
         assertSuccessResponse(response, sessionDtos);
+        assertEquals("\"sessions-1-1-0\"", response.getHeaders().getETag());
+        assertEquals("no-cache", response.getHeaders().getCacheControl());
         verify(sessionService).findAll();
-        verify(sessionMapper).toDto(sessions);
+        verify(sessionMapper).summariesToDto(sessions);
+    }
+
+    @Test
+    void findAll_MatchingETag_ReturnsNotModified() {
+        when(sessionService.getCollectionVersion()).thenReturn(new CollectionVersion(1L, 1L, "0"));
+
+        ResponseEntity<?> response = sessionController.findAll(webRequest("\"sessions-1-1-0\""));
+
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        verify(sessionService, never()).findAll();
+        verifyNoInteractions(sessionMapper);
+    }
+
+    @Test
+    void export_StreamsNdjson() throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        when(sessionExporter.export(response.getOutputStream())).thenReturn(1L);
+
+        sessionController.export(response);
+
+        assertEquals("application/x-ndjson;charset=UTF-8", response.getContentType());
+        verify(sessionExporter).export(response.getOutputStream());
+        verifyNoInteractions(sessionService);
+    }
+
+    @Test
+    void findPage_FullPage_ReturnsSessionsWithNextCursor() {
+        List<SessionSummary> sessions = Collections.singletonList(createSummary());
+        List<SessionDto> sessionDtos = Collections.singletonList(sessionDto);
+        when(sessionService.findPage(2, 1)).thenReturn(sessions);
+        when(sessionMapper.summariesToDto(sessions)).thenReturn(sessionDtos);
+
+        ResponseEntity<?> response = sessionController.findPage("1", "2", null);
+
+        assertSuccessResponse(response, sessionDtos);
+        assertEquals(session.getDate().getTime() + "_1", response.getHeaders().getFirst("X-Next-Cursor"));
+    }
+
+    @Test
+    void findPage_AfterCursor_UsesKeysetQuery() {
+        Date date = new Date(1700000000000L);
+        when(sessionService.findAfter(date, 5L, 10)).thenReturn(Collections.singletonList(createSummary()));
+
+        ResponseEntity<?> response = sessionController.findPage("10", null, "1700000000000_5");
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNull(response.getHeaders().getFirst("X-Next-Cursor"));
+        verify(sessionService).findAfter(date, 5L, 10);
+        verify(sessionService, never()).findPage(anyInt(), anyInt());
+    }
+
+    @Test
+    void findPage_InvalidParameters_ReturnsBadRequest() {
+        assertBadRequest(sessionController.findPage("0", null, null));
+        assertBadRequest(sessionController.findPage("101", null, null));
+        assertBadRequest(sessionController.findPage("10", "-1", null));
+        assertBadRequest(sessionController.findPage("10", null, "invalid"));
+        assertBadRequest(sessionController.findPage("10", null, "abc_1"));
+        verifyNoInteractions(sessionService);
     }
 
     @Test
@@ -101,6 +201,28 @@ class SessionControllerTest {
         verify(sessionMapper).toDto(session);
     }
 
+    @Test
+    void importSessions_Admin_ReturnsImportReport() throws IOException {
+        authenticate(true);
+        InputStream body = new ByteArrayInputStream("[]".getBytes());
+        SessionImportResponse report = new SessionImportResponse();
+        when(sessionImporter.importSessions(body)).thenReturn(report);
+
+        ResponseEntity<?> response = sessionController.importSessions(body);
+
+        assertSuccessResponse(response, report);
+    }
+
+    @Test
+    void importSessions_NotAdmin_ReturnsForbidden() throws IOException {
+        authenticate(false);
+
+        ResponseEntity<?> response = sessionController.importSessions(new ByteArrayInputStream("[]".getBytes()));
+
+        assertEquals(HttpStatus.FORBIDDEN, response.getStatusCode());
+        verifyNoInteractions(sessionImporter);
+    }
+
     @Test
     void update_ValidIdAndSession_ReturnsUpdatedSession() {
         when(sessionMapper.toEntity(sessionDto)).thenReturn(session);
@@ -155,12 +277,24 @@ class SessionControllerTest {
 
     @Test
     void participate_ValidIds_ReturnsOk() {
+        when(sessionService.participate(1L, 2L)).thenReturn(ParticipationStatus.PARTICIPATING);
+
         ResponseEntity<?> response = sessionController.participate("1", "2");
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         verify(sessionService).participate(1L, 2L);
     }
 
+    @Test
+    void participate_FullSession_ReturnsAccepted() {
+        when(sessionService.participate(1L, 2L)).thenReturn(ParticipationStatus.WAITLISTED);
+
+        ResponseEntity<?> response = sessionController.participate("1", "2");
+
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertTrue(response.getBody() instanceof MessageResponse);
+    }
+
     @Test
     void participate_InvalidId_ReturnsBadRequest() {
         ResponseEntity<?> response = sessionController.participate("invalid", "2");
@@ -208,6 +342,11 @@ class SessionControllerTest {
                 .build();
     }
 
+    private SessionSummary createSummary() {
+        return new SessionSummary(session.getId(), session.getName(), session.getDate(), session.getDescription(),
+                session.getTeacher().getId(), null, Collections.emptyList(), 0L, session.getCreatedAt(), session.getUpdatedAt());
+    }
+
     private SessionDto createSessionDto() {
         SessionDto dto = new SessionDto();
         dto.setId(1L);
@@ -218,6 +357,20 @@ class SessionControllerTest {
         return dto;
     }
 
+    private ServletWebRequest webRequest(String ifNoneMatch) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/session");
+        if (ifNoneMatch != null) {
+            request.addHeader("If-None-Match", ifNoneMatch);
+        }
+        return new ServletWebRequest(request, new MockHttpServletResponse());
+    }
+
+    private void authenticate(boolean admin) {
+        UserDetailsImpl user = UserDetailsImpl.builder().id(1L).username("yoga@studio.com").admin(admin).build();
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+    }
+
     private void assertSuccessResponse(ResponseEntity<?> response, Object expectedBody) {
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals(expectedBody, response.getBody());
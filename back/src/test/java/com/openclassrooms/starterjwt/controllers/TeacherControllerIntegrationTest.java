@@ -2,6 +2,7 @@ package com.openclassrooms.starterjwt.controllers;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.repository.projection.CollectionVersion;
 import com.openclassrooms.starterjwt.services.TeacherService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -17,9 +18,13 @@ import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -104,11 +109,28 @@ class TeacherControllerIntegrationTest {
         List<Teacher> teachers = Arrays.asList(teacher1, teacher2);
 
         when(teacherService.findAll()).thenReturn(teachers);
+        when(teacherService.getCollectionVersion()).thenReturn(new CollectionVersion(2L, 2L, now));
 
 
         MvcResult result = mockMvc.perform(get("/api/teacher")
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"teachers-2-2-" + now + "\""))
+                .andExpect(header().string("Cache-Control", "no-cache"))
                 .andReturn();
     }
+
+    @Test
+    @WithMockUser(username = "UserMock")
+    void findAll_UnchangedTeachers_ReturnsNotModified() throws Exception {
+        LocalDateTime now = LocalDateTime.now();
+        when(teacherService.getCollectionVersion()).thenReturn(new CollectionVersion(2L, 2L, now));
+
+        mockMvc.perform(get("/api/teacher")
+                        .header("If-None-Match", "\"teachers-2-2-" + now + "\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        verify(teacherService, never()).findAll();
+    }
 }
\ No newline at end of file
@@ -3,6 +3,7 @@ package com.openclassrooms.starterjwt.controllers;
 import com.openclassrooms.starterjwt.dto.TeacherDto;
 import com.openclassrooms.starterjwt.mapper.TeacherMapper;
 import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.repository.projection.CollectionVersion;
 import com.openclassrooms.starterjwt.services.TeacherService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -12,6 +13,9 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
@@ -79,13 +83,29 @@ class TeacherControllerTest {
         when(teacherService.findAll()).thenReturn(teachers);
         when(teacherMapper.toDto(teachers)).thenReturn(teacherDtos);
 
-        ResponseEntity<?> response = teacherController.findAll();
+        when(teacherService.getCollectionVersion()).thenReturn(new CollectionVersion(1L, 1L, LocalDateTime.of(2024, 1, 1, 10, 0)));
+
+        ResponseEntity<?> response = teacherController.findAll(new ServletWebRequest(new MockHttpServletRequest()));
 
         assertSuccessResponse(response, teacherDtos);
+        assertEquals("\"teachers-1-1-2024-01-01T10:00\"", response.getHeaders().getETag());
         verify(teacherService).findAll();
         verify(teacherMapper).toDto(teachers);
     }
 
+    @Test
+    void findAll_MatchingETag_ReturnsNotModified() {
+        when(teacherService.getCollectionVersion()).thenReturn(new CollectionVersion(1L, 1L, LocalDateTime.of(2024, 1, 1, 10, 0)));
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/teacher");
+        request.addHeader("If-None-Match", "\"teachers-1-1-2024-01-01T10:00\"");
+
+        ResponseEntity<?> response = teacherController.findAll(new ServletWebRequest(request, new MockHttpServletResponse()));
+
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        verify(teacherService, never()).findAll();
+        verifyNoInteractions(teacherMapper);
+    }
+
     // Helper methods
     private Teacher createTeacher() {
         LocalDateTime now = LocalDateTime.now();
@@ -0,0 +1,93 @@
+package com.openclassrooms.starterjwt.instrumentation;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CountingDataSourceTest {
+    private static final String SELECT = "select id from items where id > ?";
+
+    private CountingDataSource dataSource;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:counting;DB_CLOSE_DELAY=-1");
+        dataSource = new CountingDataSource(h2);
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("create table items (id bigint primary key)");
+            statement.execute("insert into items values (1), (2), (3)");
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        SqlStatementCounter.stop();
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("drop table items");
+        }
+    }
+
+    @Test
+    void countsStatementsAndRowsReadOnTheCountingThread() throws Exception {
+        SqlStatementCounter counter = SqlStatementCounter.start();
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(SELECT)) {
+            for (long id = 0; id < 2; id++) {
+                statement.setLong(1, id);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        assertTrue(resultSet.getLong(1) > id);
+                    }
+                }
+            }
+        }
+
+        assertEquals(2, counter.getStatements());
+        assertEquals(5, counter.getRows());
+        assertEquals(2, counter.getExecutionsBySql().get(SELECT));
+    }
+
+    @Test
+    void countsABatchAsOneStatement() throws Exception {
+        SqlStatementCounter counter = SqlStatementCounter.start();
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("insert into items values (?)")) {
+            for (long id = 4; id < 8; id++) {
+                statement.setLong(1, id);
+                statement.addBatch();
+            }
+            assertEquals(4, statement.executeBatch().length);
+        }
+
+        assertEquals(1, counter.getStatements());
+    }
+
+    @Test
+    void doesNotCountWhenNotStarted() throws Exception {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("select count(*) from items");
+        }
+
+        assertNull(SqlStatementCounter.current());
+    }
+
+    @Test
+    void proxiesAreEqualOnlyToThemselves() throws Exception {
+        try (Connection connection = dataSource.getConnection()) {
+            assertEquals(connection, connection);
+            assertEquals(connection.hashCode(), connection.hashCode());
+            assertNotEquals(connection, connection.unwrap(Connection.class));
+        }
+    }
+}
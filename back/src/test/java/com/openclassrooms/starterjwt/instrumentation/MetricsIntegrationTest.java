@@ -0,0 +1,67 @@
+package com.openclassrooms.starterjwt.instrumentation;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "management.server.port=",
+        "spring.datasource.url=jdbc:h2:mem:metrics;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureMockMvc
+@AutoConfigureMetrics
+class MetricsIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    @WithMockUser
+    void prometheus_ExposesLatencyHistogramsAndErrorsPerController() throws Exception {
+        mockMvc.perform(get("/api/teacher")).andExpect(status().isOk());
+        mockMvc.perform(get("/api/teacher/404")).andExpect(status().isNotFound());
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("http_server_requests_seconds_bucket{application=\"yoga-app\","
+                        + "controller=\"TeacherController\",exception=\"None\",handler=\"findAll\",method=\"GET\","
+                        + "outcome=\"SUCCESS\",status=\"200\",uri=\"/api/teacher\"")))
+                .andExpect(content().string(containsString("controller=\"TeacherController\",exception=\"None\","
+                        + "handler=\"findById\",method=\"GET\",outcome=\"CLIENT_ERROR\",status=\"404\"")))
+                .andExpect(content().string(containsString("http_server_requests_seconds{application=\"yoga-app\","
+                        + "controller=\"TeacherController\",exception=\"None\",handler=\"findAll\",method=\"GET\","
+                        + "outcome=\"SUCCESS\",status=\"200\",uri=\"/api/teacher\",quantile=\"0.99\",}")))
+                .andExpect(content().string(containsString("hikaricp_connections_active")))
+                .andExpect(content().string(containsString("jvm_memory_used_bytes")))
+                .andExpect(content().string(containsString("jvm_gc_pause_seconds")))
+                .andExpect(content().string(containsString("cache_gets_total{application=\"yoga-app\",cache=\"jwtTokens\"")))
+                .andExpect(content().string(containsString("cache_gets_total{application=\"yoga-app\",cache=\"userDetails\"")))
+                .andExpect(content().string(containsString("sessions_signup_batches_total")))
+                .andExpect(content().string(containsString("password_hash_queue")))
+                .andExpect(content().string(containsString("password_hash_seconds_count")))
+                .andExpect(content().string(containsString("sessions_catalog_loads_coalesced_total")))
+                .andExpect(content().string(containsString("sessions_reads_loads_coalesced_total")));
+    }
+
+    @Test
+    void prometheus_OnTheApplicationPort_RequiresAuthentication() throws Exception {
+        mockMvc.perform(get("/actuator/prometheus")).andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void health_IsPublic() throws Exception {
+        mockMvc.perform(get("/actuator/health")).andExpect(status().isOk());
+    }
+}
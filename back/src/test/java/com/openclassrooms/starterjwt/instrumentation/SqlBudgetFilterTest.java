@@ -0,0 +1,138 @@
+package com.openclassrooms.starterjwt.instrumentation;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SqlBudgetFilterTest {
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/session");
+
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    @Test
+    void doFilter_WritesHeadersBeforeTheBodyIsCommitted() throws Exception {
+        SqlBudgetFilter filter = new SqlBudgetFilter(meterRegistry, true, false, 10);
+
+        filter.doFilter(request, response, chain(3, true));
+
+        assertTrue(response.isCommitted());
+        assertEquals("3", response.getHeader(SqlBudgetFilter.STATEMENTS_HEADER));
+        assertEquals("3", response.getHeader(SqlBudgetFilter.ROWS_HEADER));
+        assertNull(SqlStatementCounter.current());
+    }
+
+    @Test
+    void doFilter_WritesHeadersAfterTheChainWhenNothingWasCommitted() throws Exception {
+        SqlBudgetFilter filter = new SqlBudgetFilter(meterRegistry, true, false, 10);
+
+        filter.doFilter(request, response, chain(2, false));
+
+        assertEquals("2", response.getHeader(SqlBudgetFilter.STATEMENTS_HEADER));
+    }
+
+    @Test
+    void doFilter_HeadersDisabled_WritesNoHeaders() throws Exception {
+        SqlBudgetFilter filter = new SqlBudgetFilter(meterRegistry, false, false, 10);
+
+        filter.doFilter(request, response, chain(2, true));
+
+        assertNull(response.getHeader(SqlBudgetFilter.STATEMENTS_HEADER));
+    }
+
+    @Test
+    void doFilter_RecordsStatementsPerHandler() throws Exception {
+        SqlBudgetFilter filter = new SqlBudgetFilter(meterRegistry, false, false, 10);
+        request.setAttribute(SqlBudgetInterceptor.HANDLER_ATTRIBUTE, "SessionController.findAll");
+
+        filter.doFilter(request, response, chain(4, false));
+
+        assertEquals(4.0, meterRegistry.get("http.server.requests.sql.statements")
+                .tag("handler", "SessionController.findAll").summary().totalAmount());
+        assertEquals(4.0, meterRegistry.get("http.server.requests.sql.rows")
+                .tag("handler", "SessionController.findAll").summary().totalAmount());
+    }
+
+    @Test
+    void doFilter_OverBudget_CountsAndLogsWhenNotEnforced() throws Exception {
+        SqlBudgetFilter filter = new SqlBudgetFilter(meterRegistry, false, false, 10);
+        request.setAttribute(SqlBudgetInterceptor.HANDLER_ATTRIBUTE, "SessionController.findAll");
+        request.setAttribute(SqlBudgetInterceptor.BUDGET_ATTRIBUTE, budget(2, Integer.MAX_VALUE));
+
+        filter.doFilter(request, response, chain(3, false));
+
+        assertEquals(1.0, meterRegistry.get("http.server.requests.sql.budget.exceeded")
+                .tag("handler", "SessionController.findAll").counter().count());
+    }
+
+    @Test
+    void doFilter_OverBudget_ThrowsWhenEnforced() {
+        SqlBudgetFilter filter = new SqlBudgetFilter(meterRegistry, false, true, 10);
+        request.setAttribute(SqlBudgetInterceptor.HANDLER_ATTRIBUTE, "SessionController.findAll");
+        request.setAttribute(SqlBudgetInterceptor.BUDGET_ATTRIBUTE, budget(10, 2));
+
+        SqlBudgetExceededException e = assertThrows(SqlBudgetExceededException.class,
+                () -> filter.doFilter(request, response, chain(3, false)));
+
+        assertTrue(e.getMessage().contains("read 3 rows"));
+    }
+
+    @Test
+    void doFilter_WithinBudget_PassesWhenEnforced() throws Exception {
+        SqlBudgetFilter filter = new SqlBudgetFilter(meterRegistry, false, true, 10);
+        request.setAttribute(SqlBudgetInterceptor.BUDGET_ATTRIBUTE, budget(3, 3));
+
+        filter.doFilter(request, response, chain(3, false));
+
+        assertTrue(meterRegistry.find("http.server.requests.sql.budget.exceeded").counters().isEmpty());
+    }
+
+    /** A chain that runs the same query {@code statements} times, each reading one row. */
+    private static MockFilterChain chain(int statements, boolean writeBody) {
+        return new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                SqlStatementCounter counter = SqlStatementCounter.current();
+                for (int i = 0; i < statements; i++) {
+                    counter.statementExecuted("select * from USERS where id = ?");
+                    counter.rowRead();
+                }
+                if (writeBody) {
+                    resp.getWriter().write("[]");
+                    resp.flushBuffer();
+                }
+            }
+        });
+    }
+
+    private static SqlBudget budget(int statements, int rows) {
+        return new SqlBudget() {
+            @Override
+            public int statements() {
+                return statements;
+            }
+
+            @Override
+            public int rows() {
+                return rows;
+            }
+
+            @Override
+            public Class<? extends Annotation> annotationType() {
+                return SqlBudget.class;
+            }
+        };
+    }
+}
@@ -0,0 +1,195 @@
+package com.openclassrooms.starterjwt.instrumentation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.payload.request.LoginRequest;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.repository.WaitlistRepository;
+import com.openclassrooms.starterjwt.security.services.UserDetailsCache;
+import com.openclassrooms.starterjwt.services.SessionCatalog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs the budgeted endpoints against H2 with enforcement on, so a change
+ * that adds statements to them, such as an N+1 on {@code Session.users},
+ * fails here with a {@link SqlBudgetExceededException}.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:sqlbudget;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "oc.app.sqlBudgetHeaders=true",
+        "oc.app.sqlBudgetEnforce=true"
+})
+@AutoConfigureMockMvc
+class SqlBudgetIntegrationTest {
+    private static final int SESSIONS = 10;
+
+    private static final int USERS = 5;
+
+    private static final String PASSWORD = "test!1234";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    @Autowired
+    private TeacherRepository teacherRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WaitlistRepository waitlistRepository;
+
+    @Autowired
+    private SessionCatalog sessionCatalog;
+
+    @Autowired
+    private UserDetailsCache userDetailsCache;
+
+    private List<User> users;
+
+    private User user;
+
+    private Session session;
+
+    @BeforeEach
+    void setUp() {
+        Teacher teacher = teacherRepository.save(Teacher.builder().firstName("Margot").lastName("Delahaye").build());
+        users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            users.add(userRepository.save(new User("user" + i + "@test.com", "Doe", "John",
+                    passwordEncoder.encode(PASSWORD), false)));
+        }
+        user = users.get(0);
+        for (int i = 0; i < SESSIONS; i++) {
+            session = sessionRepository.save(Session.builder()
+                    .name("Session " + i)
+                    .description("description")
+                    .date(new Date())
+                    .capacity(20)
+                    .teacher(teacher)
+                    .users(new ArrayList<>(users.subList(1, USERS)))
+                    .build());
+        }
+        sessionCatalog.invalidate();
+    }
+
+    @AfterEach
+    void tearDown() {
+        users.forEach(u -> userDetailsCache.evict(u.getEmail()));
+        waitlistRepository.deleteAll();
+        sessionRepository.deleteAll();
+        userRepository.deleteAll();
+        teacherRepository.deleteAll();
+    }
+
+    @Test
+    void login_StaysWithinBudget() throws Exception {
+        login();
+    }
+
+    @Test
+    void login_ReadsTheUserOnceThenFromTheCache() throws Exception {
+        login("1");
+        login("0");
+    }
+
+    @Test
+    void login_WithLowerCostHash_StaysWithinBudget() throws Exception {
+        user.setPassword(new BCryptPasswordEncoder(4).encode(PASSWORD));
+        userRepository.save(user);
+
+        login("2");
+
+        assertThat(userRepository.findById(user.getId()).orElseThrow().getPassword()).startsWith("$2a$10$");
+    }
+
+    @Test
+    void findAll_UncachedUserDetails_StaysWithinBudget() throws Exception {
+        String token = login();
+        userDetailsCache.evict(user.getEmail());
+
+        mockMvc.perform(get("/api/session").header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(header().string(SqlBudgetFilter.STATEMENTS_HEADER, "3"));
+    }
+
+    @Test
+    void findAll_StaysWithinBudget() throws Exception {
+        String token = login();
+
+        mockMvc.perform(get("/api/session").header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(SESSIONS))
+                .andExpect(jsonPath("$[0].users.length()").value(USERS - 1))
+                .andExpect(header().string(SqlBudgetFilter.STATEMENTS_HEADER, "2"))
+                .andExpect(header().string(SqlBudgetFilter.ROWS_HEADER, Integer.toString(SESSIONS + SESSIONS * (USERS - 1))));
+    }
+
+    @Test
+    void participate_StaysWithinBudget() throws Exception {
+        String token = login();
+        sessionCatalog.current();
+
+        mockMvc.perform(post("/api/session/" + session.getId() + "/participate/" + user.getId())
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(header().string(SqlBudgetFilter.STATEMENTS_HEADER, "9"));
+    }
+
+    private String login() throws Exception {
+        return login("1");
+    }
+
+    private String login(String statements) throws Exception {
+        LoginRequest loginRequest = new LoginRequest();
+        loginRequest.setEmail(user.getEmail());
+        loginRequest.setPassword(PASSWORD);
+
+        MvcResult result = mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(loginRequest)))
+                .andExpect(status().isOk())
+                .andExpect(header().string(SqlBudgetFilter.STATEMENTS_HEADER, statements))
+                .andReturn();
+        JsonNode body = objectMapper.readTree(result.getResponse().getContentAsString());
+        return body.get("token").asText();
+    }
+}
@@ -0,0 +1,106 @@
+package com.openclassrooms.starterjwt.mapper;
+
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.services.TeacherService;
+import com.openclassrooms.starterjwt.services.UserService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SessionMapperResolutionTest {
+
+    @Mock
+    private TeacherService teacherService;
+
+    @Mock
+    private UserService userService;
+
+    @InjectMocks
+    private SessionMapperImpl sessionMapper;
+
+    @Test
+    void toEntity_ResolvesAllUsersInOneCall() {
+        Teacher teacher = Teacher.builder().id(3L).build();
+        Map<Long, User> users = usersById(1L, 2L);
+        when(teacherService.findById(3L)).thenReturn(teacher);
+        when(userService.findAllById(Arrays.asList(2L, 1L, 2L))).thenReturn(users);
+
+        Session session = sessionMapper.toEntity(dto(3L, Arrays.asList(2L, 1L, 2L)));
+
+        assertSame(teacher, session.getTeacher());
+        assertEquals(Arrays.asList(users.get(2L), users.get(1L)), session.getUsers());
+        verify(userService, never()).findById(anyLong());
+    }
+
+    @Test
+    void toEntity_List_LooksUpEachTeacherOnce() {
+        Teacher teacher = Teacher.builder().id(3L).build();
+        when(teacherService.findById(3L)).thenReturn(teacher);
+        when(userService.findAllById(Arrays.asList(1L, 2L))).thenReturn(usersById(1L, 2L));
+
+        List<Session> sessions = sessionMapper.toEntity(Arrays.asList(
+                dto(3L, Collections.singletonList(1L)),
+                dto(3L, Collections.singletonList(2L)),
+                dto(3L, null)));
+
+        assertEquals(3, sessions.size());
+        assertEquals(1L, sessions.get(0).getUsers().get(0).getId());
+        assertEquals(2L, sessions.get(1).getUsers().get(0).getId());
+        assertNull(sessions.get(2).getUsers());
+        verify(teacherService, times(1)).findById(3L);
+        verify(userService, times(1)).findAllById(any());
+    }
+
+    @Test
+    void toEntity_UnknownTeacher_ThrowsBadRequest() {
+        when(teacherService.findById(99L)).thenReturn(null);
+
+        assertThrows(BadRequestException.class, () -> sessionMapper.toEntity(dto(99L, null)));
+    }
+
+    @Test
+    void toEntity_UnknownUser_ThrowsBadRequest() {
+        when(userService.findAllById(Collections.singletonList(99L))).thenThrow(new BadRequestException());
+
+        assertThrows(BadRequestException.class, () -> sessionMapper.toEntity(dto(3L, Collections.singletonList(99L))));
+        verifyNoInteractions(teacherService);
+    }
+
+    private SessionDto dto(Long teacherId, List<Long> users) {
+        SessionDto sessionDto = new SessionDto();
+        sessionDto.setName("Yoga");
+        sessionDto.setDate(new Date());
+        sessionDto.setDescription("description");
+        sessionDto.setTeacher_id(teacherId);
+        sessionDto.setUsers(users);
+        return sessionDto;
+    }
+
+    private Map<Long, User> usersById(Long... ids) {
+        Map<Long, User> users = new HashMap<>();
+        for (Long id : ids) {
+            User user = new User();
+            user.setId(id);
+            users.put(id, user);
+        }
+        return users;
+    }
+}
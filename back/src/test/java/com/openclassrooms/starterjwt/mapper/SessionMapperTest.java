@@ -1,17 +1,22 @@
 package com.openclassrooms.starterjwt.mapper;
 
 import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.exception.BadRequestException;
 import com.openclassrooms.starterjwt.models.Session;
 import com.openclassrooms.starterjwt.models.Teacher;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.services.TeacherService;
+import com.openclassrooms.starterjwt.services.UserService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
 
 import java.util.Collections;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
 
 @SpringBootTest
 public class SessionMapperTest {
@@ -19,14 +24,23 @@ public class SessionMapperTest {
     @Autowired
     private SessionMapperImpl sessionMapper;
 
+    @MockBean
+    private TeacherService teacherService;
+
+    @MockBean
+    private UserService userService;
+
     @Test
     void sessionDtoToSession(){
         Teacher teacher = new Teacher();
-        teacher.setId(3L);
+        teacher.setId(1L);
 
         User user = new User();
         user.setId(1L);
 
+        when(teacherService.findById(1L)).thenReturn(teacher);
+        when(userService.findAllById(Collections.singletonList(1L))).thenReturn(Collections.singletonMap(1L, user));
+
         SessionDto sessionDto = new SessionDto();
         sessionDto.setId(1L);
         sessionDto.setDescription("description");
@@ -37,6 +51,19 @@ public class SessionMapperTest {
 
         assertNotNull(session);
         assertEquals(sessionDto.getId(),session.getId());
+        assertSame(teacher, session.getTeacher());
+        assertEquals(Collections.singletonList(user), session.getUsers());
+    }
+
+    @Test
+    void sessionDtoToSession_UnknownTeacher(){
+        SessionDto sessionDto = new SessionDto();
+        sessionDto.setDescription("description");
+        sessionDto.setTeacher_id(3L);
+
+        when(teacherService.findById(3L)).thenReturn(null);
+
+        assertThrows(BadRequestException.class, () -> sessionMapper.toEntity(sessionDto));
     }
 
     @Test
@@ -0,0 +1,181 @@
+package com.openclassrooms.starterjwt.repository;
+
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.projection.ParticipantId;
+import com.openclassrooms.starterjwt.repository.projection.SessionSummary;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.show-sql=false"
+})
+class SessionRepositoryTest {
+
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private Statistics statistics;
+
+    private Teacher teacher;
+
+    private List<User> users;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+
+        teacher = entityManager.persist(Teacher.builder().firstName("Margot").lastName("Delahaye").build());
+        users = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            users.add(entityManager.persist(new User("user" + i + "@test.com", "Doe", "John", "password", false)));
+        }
+    }
+
+    @Test
+    void findAll_statementCountDoesNotGrowWithSessions() {
+        persistSessions(3);
+        long fewSessions = countStatements(() -> assertParticipantsLoaded(sessionRepository.findAll(), 3));
+
+        persistSessions(30);
+        long manySessions = countStatements(() -> assertParticipantsLoaded(sessionRepository.findAll(), 33));
+
+        assertThat(fewSessions).isEqualTo(2);
+        assertThat(manySessions).isEqualTo(fewSessions);
+    }
+
+    @Test
+    void findAllSummaries_loadsNoEntities() {
+        persistSessions(3);
+        entityManager.clear();
+        statistics.clear();
+
+        List<SessionSummary> summaries = sessionRepository.findAllSummaries();
+        List<ParticipantId> participants = sessionRepository.findAllParticipantIds();
+
+        assertThat(summaries).hasSize(3).allSatisfy(summary -> {
+            assertThat(summary.getTeacherId()).isEqualTo(teacher.getId());
+            assertThat(summary.getName()).startsWith("Session ");
+        });
+        assertThat(participants).hasSize(9);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void findSummaryPage_ordersByDateThenId() {
+        List<Session> sessions = persistSessions(5);
+
+        List<SessionSummary> result = sessionRepository.findSummaryPage(PageRequest.of(1, 2));
+
+        assertThat(result).extracting(SessionSummary::getId)
+                .containsExactly(sessions.get(2).getId(), sessions.get(3).getId());
+    }
+
+    @Test
+    void findSummariesAfter_returnsSessionsFollowingCursor() {
+        List<Session> sessions = persistSessions(5);
+        Session third = sessions.get(2);
+
+        List<SessionSummary> result = sessionRepository.findSummariesAfter(third.getDate(), third.getId(), PageRequest.of(0, 10));
+
+        assertThat(result).extracting(SessionSummary::getId)
+                .containsExactly(sessions.get(3).getId(), sessions.get(4).getId());
+    }
+
+    @Test
+    void findParticipantIds_returnsRowsOfRequestedSessionsOnly() {
+        List<Session> sessions = persistSessions(3);
+        Long first = sessions.get(0).getId();
+
+        List<ParticipantId> result = sessionRepository.findParticipantIds(List.of(first));
+
+        assertThat(result).hasSize(users.size()).allSatisfy(row -> assertThat(row.getSessionId()).isEqualTo(first));
+        assertThat(result).extracting(ParticipantId::getUserId)
+                .containsExactlyInAnyOrderElementsOf(users.stream().map(User::getId).collect(Collectors.toList()));
+    }
+
+    @Test
+    void addParticipant_duplicateRowIsRejected() {
+        Session session = persistSessions(1).get(0);
+        User newcomer = entityManager.persistAndFlush(new User("newcomer@test.com", "Doe", "Jane", "password", false));
+
+        assertThat(sessionRepository.addParticipant(session.getId(), newcomer.getId())).isEqualTo(1);
+        assertThatThrownBy(() -> sessionRepository.addParticipant(session.getId(), newcomer.getId()))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    @Test
+    void removeParticipant_returnsDeletedRowCount() {
+        Session session = persistSessions(1).get(0);
+        Long userId = users.get(0).getId();
+
+        assertThat(sessionRepository.removeParticipant(session.getId(), userId)).isEqualTo(1);
+        assertThat(sessionRepository.removeParticipant(session.getId(), userId)).isZero();
+        assertThat(sessionRepository.findParticipantIds(List.of(session.getId()))).hasSize(users.size() - 1);
+    }
+
+    @Test
+    void incrementVersion_onlyMatchesCurrentVersion() {
+        Session session = persistSessions(1).get(0);
+        Long version = sessionRepository.findCapacity(session.getId()).orElseThrow().getVersion();
+
+        assertThat(sessionRepository.incrementVersion(session.getId(), version)).isEqualTo(1);
+        assertThat(sessionRepository.incrementVersion(session.getId(), version)).isZero();
+        assertThat(sessionRepository.findById(session.getId()).orElseThrow().getVersion()).isEqualTo(version + 1);
+    }
+
+    private List<Session> persistSessions(int count) {
+        List<Session> sessions = new ArrayList<>();
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            sessions.add(entityManager.persist(Session.builder()
+                    .name("Session " + i)
+                    .description("description")
+                    .date(new Date(start + i * 1000L))
+                    .teacher(teacher)
+                    .users(new ArrayList<>(users))
+                    .build()));
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return sessions;
+    }
+
+    private void assertParticipantsLoaded(List<Session> sessions, int expectedSessions) {
+        assertThat(sessions).hasSize(expectedSessions);
+        sessions.forEach(session -> {
+            assertThat(session.getTeacher().getLastName()).isEqualTo("Delahaye");
+            assertThat(session.getUsers()).hasSize(users.size());
+        });
+    }
+
+    private long countStatements(Runnable query) {
+        entityManager.clear();
+        statistics.clear();
+        query.run();
+        return statistics.getPrepareStatementCount();
+    }
+}
@@ -0,0 +1,45 @@
+package com.openclassrooms.starterjwt.security.crypto;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveBCryptPasswordEncoderTest {
+
+    @Test
+    void upgradeEncoding_lowerCost_shouldRequestRehash() {
+        AdaptiveBCryptPasswordEncoder encoder = new AdaptiveBCryptPasswordEncoder(6);
+
+        assertThat(encoder.upgradeEncoding(new BCryptPasswordEncoder(4).encode("password"))).isTrue();
+        assertThat(encoder.upgradeEncoding(encoder.encode("password"))).isFalse();
+    }
+
+    @Test
+    void upgradeEncoding_higherCost_shouldKeepHash() {
+        AdaptiveBCryptPasswordEncoder encoder = new AdaptiveBCryptPasswordEncoder(6);
+
+        assertThat(encoder.upgradeEncoding(new BCryptPasswordEncoder(7).encode("password"))).isFalse();
+    }
+
+    @Test
+    void matches_hashWithOtherCost_shouldStillVerify() {
+        AdaptiveBCryptPasswordEncoder encoder = new AdaptiveBCryptPasswordEncoder(6);
+
+        assertThat(encoder.matches("password", new BCryptPasswordEncoder(4).encode("password"))).isTrue();
+    }
+
+    @Test
+    void of_explicitStrength_shouldUseIt() {
+        assertThat(AdaptiveBCryptPasswordEncoder.of(5, 1000).getStrength()).isEqualTo(5);
+    }
+
+    @Test
+    void of_negativeStrength_shouldCalibrateNoLowerThanTheFloor() {
+        int fast = AdaptiveBCryptPasswordEncoder.of(-1, 1).getStrength();
+        int slow = AdaptiveBCryptPasswordEncoder.calibrate(100_000);
+
+        assertThat(fast).isEqualTo(AdaptiveBCryptPasswordEncoder.MIN_CALIBRATED_STRENGTH);
+        assertThat(slow).isGreaterThan(fast).isLessThanOrEqualTo(AdaptiveBCryptPasswordEncoder.MAX_STRENGTH);
+    }
+}
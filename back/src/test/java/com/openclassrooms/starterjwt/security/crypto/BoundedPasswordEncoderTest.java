@@ -0,0 +1,123 @@
+package com.openclassrooms.starterjwt.security.crypto;
+
+import com.openclassrooms.starterjwt.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BoundedPasswordEncoderTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private BoundedPasswordEncoder encoder;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        encoder.destroy();
+    }
+
+    @Test
+    void bindTo_shouldPublishHashTimeAndPoolState() {
+        encoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(4), 1, 1, 5000);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        encoder.bindTo(registry);
+
+        encoder.encode("password");
+
+        assertThat(registry.get("password.hash").functionTimer().count()).isEqualTo(1);
+        assertThat(registry.get("password.hash").functionTimer().totalTime(TimeUnit.NANOSECONDS)).isPositive();
+        assertThat(registry.get("password.hash.queue").gauge().value()).isZero();
+        assertThat(registry.get("password.hash.active").gauge()).isNotNull();
+        assertThat(registry.get("password.hash.rejected").functionCounter().count()).isZero();
+        assertThat(registry.get("password.hash.abandoned").functionCounter().count()).isZero();
+    }
+
+    @Test
+    void encodeAndMatches_shouldDelegateAndRecordHashTime() {
+        encoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(4), 1, 1, 5000);
+
+        String hash = encoder.encode("password");
+
+        assertThat(encoder.matches("password", hash)).isTrue();
+        assertThat(encoder.matches("wrong", hash)).isFalse();
+        assertThat(encoder.getHashCount()).isEqualTo(3);
+        assertThat(encoder.getHashTimeNanos()).isPositive();
+    }
+
+    @Test
+    void encode_saturatedPool_shouldRejectWithServiceUnavailable() throws Exception {
+        encoder = new BoundedPasswordEncoder(blockingEncoder(), 1, 1, 5000);
+
+        CompletableFuture.runAsync(() -> encoder.encode("running"));
+        CompletableFuture.runAsync(() -> encoder.encode("queued"));
+        waitUntilQueued(1);
+
+        assertThatThrownBy(() -> encoder.encode("rejected")).isInstanceOf(ServiceUnavailableException.class);
+        assertThat(encoder.getRejectedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void matches_slowerThanTimeout_shouldFailWithServiceUnavailable() {
+        encoder = new BoundedPasswordEncoder(blockingEncoder(), 1, 1, 50);
+
+        assertThatThrownBy(() -> encoder.matches("password", "hash")).isInstanceOf(ServiceUnavailableException.class);
+        assertThat(encoder.getAbandonedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void matches_afterTimeout_shouldKeepThePoolThreadUntilTheHashCompletes() throws Exception {
+        encoder = new BoundedPasswordEncoder(blockingEncoder(), 1, 1, 50);
+
+        assertThatThrownBy(() -> encoder.matches("password", "hash")).isInstanceOf(ServiceUnavailableException.class);
+
+        assertThat(encoder.getActiveCount()).isEqualTo(1);
+        release.countDown();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (encoder.getActiveCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(encoder.getActiveCount()).isZero();
+        assertThat(encoder.matches("password", "hash")).isTrue();
+    }
+
+    private void waitUntilQueued(int depth) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (encoder.getQueueDepth() < depth && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private PasswordEncoder blockingEncoder() {
+        return new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                await();
+                return rawPassword.toString();
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                await();
+                return true;
+            }
+
+            private void await() {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+    }
+}
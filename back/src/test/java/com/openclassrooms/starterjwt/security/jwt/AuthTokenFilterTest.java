@@ -1,9 +1,16 @@
 package com.openclassrooms.starterjwt.security.jwt;
 
+import com.openclassrooms.starterjwt.repository.TokenRevocationRepository;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import com.openclassrooms.starterjwt.security.services.UserDetailsServiceImpl;
 import org.junit.jupiter.api.Test;
 import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
 
 class AuthTokenFilterTest {
 
@@ -37,6 +44,84 @@ class AuthTokenFilterTest {
         assertThat(result).isNull();
     }
 
+    @Test
+    void verifyJwt_sameTokenTwice_shouldParseOnce() {
+        JwtUtils jwtUtils = mock(JwtUtils.class);
+        VerifiedJwt verified = VerifiedJwt.builder()
+                .subject("john.doe@example.com")
+                .expiration(new Date(System.currentTimeMillis() + 60000))
+                .build();
+        when(jwtUtils.parseJwtToken("validToken")).thenReturn(verified);
+        ReflectionTestUtils.setField(authTokenFilter, "jwtUtils", jwtUtils);
+        ReflectionTestUtils.setField(authTokenFilter, "jwtTokenCache", new JwtTokenCache(10));
+
+        assertThat(authTokenFilter.verifyJwt("validToken")).isSameAs(verified);
+        assertThat(authTokenFilter.verifyJwt("validToken")).isSameAs(verified);
+
+        verify(jwtUtils, times(1)).parseJwtToken("validToken");
+    }
+
+    @Test
+    void verifyJwt_invalidToken_shouldNotBeCached() {
+        JwtUtils jwtUtils = mock(JwtUtils.class);
+        ReflectionTestUtils.setField(authTokenFilter, "jwtUtils", jwtUtils);
+        ReflectionTestUtils.setField(authTokenFilter, "jwtTokenCache", new JwtTokenCache(10));
+
+        assertThat(authTokenFilter.verifyJwt("invalidToken")).isNull();
+        assertThat(authTokenFilter.verifyJwt("invalidToken")).isNull();
+
+        verify(jwtUtils, times(2)).parseJwtToken("invalidToken");
+    }
+
+    @Test
+    void loadUserDetails_statelessMode_shouldBuildPrincipalFromClaims() {
+        UserDetailsServiceImpl userDetailsService = mock(UserDetailsServiceImpl.class);
+        ReflectionTestUtils.setField(authTokenFilter, "userDetailsService", userDetailsService);
+        ReflectionTestUtils.setField(authTokenFilter, "tokenRevocationList", new TokenRevocationList(mock(TokenRevocationRepository.class), 60000, 5000));
+        ReflectionTestUtils.setField(authTokenFilter, "statelessPrincipal", true);
+
+        UserDetailsImpl userDetails = (UserDetailsImpl) authTokenFilter.loadUserDetails(tokenWithClaims(new Date()));
+
+        assertThat(userDetails.getId()).isEqualTo(1L);
+        assertThat(userDetails.getUsername()).isEqualTo("john.doe@example.com");
+        assertThat(userDetails.getAdmin()).isTrue();
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    void loadUserDetails_statelessModeRevokedUser_shouldReturnNull() {
+        TokenRevocationList tokenRevocationList = new TokenRevocationList(mock(TokenRevocationRepository.class), 60000, 5000);
+        ReflectionTestUtils.setField(authTokenFilter, "tokenRevocationList", tokenRevocationList);
+        ReflectionTestUtils.setField(authTokenFilter, "statelessPrincipal", true);
+        VerifiedJwt token = tokenWithClaims(new Date(System.currentTimeMillis() - 1000));
+
+        tokenRevocationList.revoke(1L);
+
+        assertThat(authTokenFilter.loadUserDetails(token)).isNull();
+    }
+
+    @Test
+    void loadUserDetails_defaultMode_shouldLoadUser() {
+        UserDetailsServiceImpl userDetailsService = mock(UserDetailsServiceImpl.class);
+        UserDetailsImpl loaded = UserDetailsImpl.builder().id(1L).username("john.doe@example.com").build();
+        when(userDetailsService.loadUserByUsername("john.doe@example.com")).thenReturn(loaded);
+        ReflectionTestUtils.setField(authTokenFilter, "userDetailsService", userDetailsService);
+
+        assertThat(authTokenFilter.loadUserDetails(tokenWithClaims(new Date()))).isSameAs(loaded);
+    }
+
+    private VerifiedJwt tokenWithClaims(Date issuedAt) {
+        return VerifiedJwt.builder()
+                .subject("john.doe@example.com")
+                .issuedAt(issuedAt)
+                .expiration(new Date(System.currentTimeMillis() + 60000))
+                .userId(1L)
+                .firstName("John")
+                .lastName("Doe")
+                .admin(true)
+                .build();
+    }
+
     private MockHttpServletRequest createRequestWithToken(String token) {
         MockHttpServletRequest request = new MockHttpServletRequest();
         request.addHeader("Authorization", "Bearer " + token);
@@ -0,0 +1,87 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtTokenCacheTest {
+
+    @Test
+    void get_afterPut_shouldReturnCachedClaimsAndCountHit() {
+        JwtTokenCache cache = new JwtTokenCache(10);
+        VerifiedJwt verified = tokenExpiringIn(60000);
+
+        assertThat(cache.get("token")).isNull();
+        cache.put("token", verified);
+
+        assertThat(cache.get("token")).isSameAs(verified);
+        assertThat(cache.getHitCount()).isEqualTo(1);
+        assertThat(cache.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    void get_expiredToken_shouldReturnNull() {
+        JwtTokenCache cache = new JwtTokenCache(10);
+
+        cache.put("token", tokenExpiringIn(-1000));
+
+        assertThat(cache.get("token")).isNull();
+    }
+
+    @Test
+    void put_tokenWithoutExpiration_shouldNotBeCached() {
+        JwtTokenCache cache = new JwtTokenCache(10);
+
+        cache.put("token", VerifiedJwt.builder().subject("john.doe@example.com").build());
+
+        assertThat(cache.get("token")).isNull();
+    }
+
+    @Test
+    void put_beyondMaxSize_shouldEvict() {
+        JwtTokenCache cache = new JwtTokenCache(2);
+
+        for (int i = 0; i < 10; i++) {
+            cache.put("token" + i, tokenExpiringIn(60000));
+        }
+        cache.cleanUp();
+
+        assertThat(cache.size()).isLessThanOrEqualTo(2);
+        assertThat(cache.getEvictionCount()).isGreaterThan(0);
+    }
+
+    @Test
+    void bindTo_shouldPublishHitsAndMisses() {
+        JwtTokenCache cache = new JwtTokenCache(10);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        cache.bindTo(registry);
+
+        cache.get("token");
+        cache.put("token", tokenExpiringIn(60000));
+        cache.get("token");
+
+        assertThat(registry.get("cache.gets").tag("cache", "jwtTokens").tag("result", "hit").functionCounter().count())
+                .isEqualTo(1);
+        assertThat(registry.get("cache.gets").tag("cache", "jwtTokens").tag("result", "miss").functionCounter().count())
+                .isEqualTo(1);
+        assertThat(registry.get("cache.evictions").tag("cache", "jwtTokens").functionCounter()).isNotNull();
+    }
+
+    @Test
+    void digest_shouldNotKeepRawToken() {
+        assertThat(JwtTokenCache.digest("header.payload.signature"))
+                .doesNotContain("payload")
+                .isEqualTo(JwtTokenCache.digest("header.payload.signature"));
+    }
+
+    private VerifiedJwt tokenExpiringIn(long millis) {
+        return VerifiedJwt.builder()
+                .subject("john.doe@example.com")
+                .issuedAt(new Date())
+                .expiration(new Date(System.currentTimeMillis() + millis))
+                .build();
+    }
+}
@@ -0,0 +1,95 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtUtilsTest {
+
+    private static final String SECRET = "openclassrooms";
+
+    private JwtUtils jwtUtils;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", 60000);
+        jwtUtils.initSigningKey();
+    }
+
+    @Test
+    void parseJwtToken_generatedToken_shouldReturnClaims() {
+        String token = jwtUtils.generateJwtToken(authenticationFor("john.doe@example.com"));
+
+        VerifiedJwt verified = jwtUtils.parseJwtToken(token);
+
+        assertThat(verified).isNotNull();
+        assertThat(verified.getSubject()).isEqualTo("john.doe@example.com");
+        assertThat(verified.getIssuedAt()).isNotNull();
+        assertThat(verified.getExpiration()).isAfter(verified.getIssuedAt());
+        assertThat(verified.isExpired(System.currentTimeMillis())).isFalse();
+        assertThat(verified.getUserId()).isEqualTo(1L);
+        assertThat(verified.getFirstName()).isEqualTo("John");
+        assertThat(verified.getLastName()).isEqualTo("Doe");
+        assertThat(verified.getAdmin()).isFalse();
+    }
+
+    @Test
+    void parseJwtToken_tokenSignedWithStringSecret_shouldStillBeAccepted() {
+        String token = Jwts.builder()
+                .setSubject("john.doe@example.com")
+                .setExpiration(new Date(System.currentTimeMillis() + 60000))
+                .signWith(SignatureAlgorithm.HS512, SECRET)
+                .compact();
+
+        assertThat(jwtUtils.parseJwtToken(token).getSubject()).isEqualTo("john.doe@example.com");
+        assertThat(jwtUtils.parseJwtToken(token).getUserId()).isNull();
+        assertThat(jwtUtils.getUserNameFromJwtToken(token)).isEqualTo("john.doe@example.com");
+    }
+
+    @Test
+    void parseJwtToken_tamperedToken_shouldReturnNull() {
+        String token = jwtUtils.generateJwtToken(authenticationFor("john.doe@example.com"));
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+
+        assertThat(jwtUtils.parseJwtToken(tampered)).isNull();
+        assertThat(jwtUtils.validateJwtToken(tampered)).isFalse();
+    }
+
+    @Test
+    void parseJwtToken_expiredToken_shouldReturnNull() {
+        String token = Jwts.builder()
+                .setSubject("john.doe@example.com")
+                .setExpiration(new Date(System.currentTimeMillis() - 1000))
+                .signWith(SignatureAlgorithm.HS512, SECRET)
+                .compact();
+
+        assertThat(jwtUtils.parseJwtToken(token)).isNull();
+    }
+
+    @Test
+    void parseJwtToken_malformedToken_shouldReturnNull() {
+        assertThat(jwtUtils.parseJwtToken("not-a-jwt")).isNull();
+        assertThat(jwtUtils.parseJwtToken("")).isNull();
+    }
+
+    private UsernamePasswordAuthenticationToken authenticationFor(String email) {
+        UserDetailsImpl userDetails = UserDetailsImpl.builder()
+                .id(1L)
+                .username(email)
+                .firstName("John")
+                .lastName("Doe")
+                .admin(false)
+                .build();
+        return new UsernamePasswordAuthenticationToken(userDetails, null);
+    }
+}
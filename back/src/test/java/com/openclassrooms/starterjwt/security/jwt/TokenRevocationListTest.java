@@ -0,0 +1,75 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import com.openclassrooms.starterjwt.models.TokenRevocation;
+import com.openclassrooms.starterjwt.repository.TokenRevocationRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.util.Collections;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class TokenRevocationListTest {
+
+    private final TokenRevocationRepository tokenRevocationRepository = mock(TokenRevocationRepository.class);
+
+    private final TokenRevocationList tokenRevocationList = new TokenRevocationList(tokenRevocationRepository, 60000, 60000);
+
+    @Test
+    void revoke_shouldStoreRevocationAndRejectOlderTokensAtOnce() {
+        tokenRevocationList.revoke(1L);
+
+        verify(tokenRevocationRepository).deleteRevokedBefore(any(Date.class));
+        verify(tokenRevocationRepository).save(argThat(revocation -> revocation.getUserId().equals(1L)));
+        assertThat(tokenRevocationList.isRevoked(token(1L, System.currentTimeMillis() - 1000))).isTrue();
+        assertThat(tokenRevocationList.isRevoked(token(1L, System.currentTimeMillis() + 1000))).isFalse();
+    }
+
+    @Test
+    void isRevoked_revocationStoredByAnotherNode_shouldRejectOlderTokens() {
+        long revokedAt = System.currentTimeMillis() - 5000;
+        when(tokenRevocationRepository.findByRevokedAtAfter(any(Date.class)))
+                .thenReturn(Collections.singletonList(new TokenRevocation(2L, new Date(revokedAt))));
+
+        assertThat(tokenRevocationList.isRevoked(token(2L, revokedAt - 1000))).isTrue();
+        assertThat(tokenRevocationList.isRevoked(token(2L, revokedAt + 1000))).isFalse();
+        assertThat(tokenRevocationList.isRevoked(token(3L, revokedAt - 1000))).isFalse();
+    }
+
+    @Test
+    void isRevoked_withinRefreshDelay_shouldNotReload() {
+        tokenRevocationList.isRevoked(token(1L, System.currentTimeMillis()));
+        tokenRevocationList.isRevoked(token(1L, System.currentTimeMillis()));
+
+        verify(tokenRevocationRepository, times(1)).findByRevokedAtAfter(any(Date.class));
+    }
+
+    @Test
+    void isRevoked_afterRefreshDelay_shouldReload() {
+        TokenRevocationList list = new TokenRevocationList(tokenRevocationRepository, 60000, 0);
+
+        list.isRevoked(token(1L, System.currentTimeMillis()));
+        list.isRevoked(token(1L, System.currentTimeMillis()));
+
+        verify(tokenRevocationRepository, times(2)).findByRevokedAtAfter(any(Date.class));
+    }
+
+    @Test
+    void isRevoked_storeUnavailable_shouldKeepServing() {
+        when(tokenRevocationRepository.findByRevokedAtAfter(any(Date.class)))
+                .thenThrow(new DataAccessResourceFailureException("down"));
+
+        assertThat(tokenRevocationList.isRevoked(token(1L, System.currentTimeMillis()))).isFalse();
+    }
+
+    private VerifiedJwt token(Long userId, long issuedAt) {
+        return VerifiedJwt.builder()
+                .subject("john.doe@example.com")
+                .userId(userId)
+                .issuedAt(new Date(issuedAt))
+                .build();
+    }
+}
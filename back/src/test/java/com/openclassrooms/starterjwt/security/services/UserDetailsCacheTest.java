@@ -0,0 +1,68 @@
+package com.openclassrooms.starterjwt.security.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserDetailsCacheTest {
+
+    private final UserDetailsCache userDetailsCache = new UserDetailsCache(60000, 100);
+
+    @Test
+    void get_afterPut_shouldReturnCachedUserDetails() {
+        UserDetailsImpl userDetails = userDetails(1L, "john.doe@example.com");
+
+        userDetailsCache.put(userDetails);
+
+        assertThat(userDetailsCache.get("john.doe@example.com")).isSameAs(userDetails);
+        assertThat(userDetailsCache.getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void bindTo_shouldPublishHitsAndSize() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        userDetailsCache.bindTo(registry);
+
+        userDetailsCache.put(userDetails(1L, "john.doe@example.com"));
+        userDetailsCache.get("john.doe@example.com");
+
+        assertThat(registry.get("cache.gets").tag("cache", "userDetails").tag("result", "hit").functionCounter().count())
+                .isEqualTo(1);
+        assertThat(registry.get("cache.size").tag("cache", "userDetails").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void evict_shouldRemoveEntry() {
+        userDetailsCache.put(userDetails(1L, "john.doe@example.com"));
+
+        userDetailsCache.evict("john.doe@example.com");
+
+        assertThat(userDetailsCache.get("john.doe@example.com")).isNull();
+    }
+
+    @Test
+    void evictById_shouldOnlyRemoveMatchingUser() {
+        userDetailsCache.put(userDetails(1L, "john.doe@example.com"));
+        userDetailsCache.put(userDetails(2L, "jane.doe@example.com"));
+
+        userDetailsCache.evictById(1L);
+
+        assertThat(userDetailsCache.get("john.doe@example.com")).isNull();
+        assertThat(userDetailsCache.get("jane.doe@example.com")).isNotNull();
+    }
+
+    @Test
+    void get_afterTtl_shouldReturnNull() throws InterruptedException {
+        UserDetailsCache shortLived = new UserDetailsCache(1, 100);
+        shortLived.put(userDetails(1L, "john.doe@example.com"));
+
+        Thread.sleep(20);
+
+        assertThat(shortLived.get("john.doe@example.com")).isNull();
+    }
+
+    private UserDetailsImpl userDetails(Long id, String email) {
+        return UserDetailsImpl.builder().id(id).username(email).firstName("John").lastName("Doe").build();
+    }
+}
@@ -24,6 +24,9 @@ class UserDetailsServiceImplTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private UserDetailsCache userDetailsCache;
+
     @InjectMocks
     private UserDetailsServiceImpl userDetailsService;
 
@@ -43,6 +46,16 @@ class UserDetailsServiceImplTest {
 
         assertUserDetails(userDetails, user);
         verify(userRepository).findByEmail(EMAIL);
+        verify(userDetailsCache).put(userDetails);
+    }
+
+    @Test
+    void loadUserByUsername_cachedUser_shouldNotQueryRepository() {
+        UserDetailsImpl cached = UserDetailsImpl.builder().id(1L).username(EMAIL).build();
+        when(userDetailsCache.get(EMAIL)).thenReturn(cached);
+
+        assertThat(userDetailsService.loadUserByUsername(EMAIL)).isSameAs(cached);
+        verifyNoInteractions(userRepository);
     }
 
     @Test
@@ -54,6 +67,20 @@ class UserDetailsServiceImplTest {
                 .hasMessage("User Not Found with email: " + EMAIL);
     }
 
+    @Test
+    void updatePassword_shouldStoreNewHashAndEvictCache() {
+        UserDetailsImpl userDetails = UserDetailsImpl.builder()
+                .id(1L).username(EMAIL).firstName("John").lastName("Doe").admin(true).password("old").build();
+
+        UserDetailsImpl updated = (UserDetailsImpl) userDetailsService.updatePassword(userDetails, "new");
+
+        verify(userRepository).updatePasswordByEmail(EMAIL, "new");
+        verify(userDetailsCache).evict(EMAIL);
+        assertThat(updated.getPassword()).isEqualTo("new");
+        assertThat(updated.getId()).isEqualTo(1L);
+        assertThat(updated.getAdmin()).isTrue();
+    }
+
     private User createUser() {
         LocalDateTime now = LocalDateTime.now();
         return new User(1L, EMAIL, "Doe", "John", "A simple password", false, now, now);
@@ -64,5 +91,6 @@ class UserDetailsServiceImplTest {
         assertThat(userDetails.getFirstName()).isEqualTo(expectedUser.getFirstName());
         assertThat(userDetails.getLastName()).isEqualTo(expectedUser.getLastName());
         assertThat(userDetails.getPassword()).isEqualTo(expectedUser.getPassword());
+        assertThat(userDetails.getAdmin()).isEqualTo(expectedUser.isAdmin());
     }
 }
\ No newline at end of file
@@ -0,0 +1,203 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.exception.NotFoundException;
+import com.openclassrooms.starterjwt.models.WaitlistEntry;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.repository.WaitlistRepository;
+import com.openclassrooms.starterjwt.repository.projection.SessionCapacity;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ParticipationWriterTest {
+
+    @Mock
+    private SessionRepository sessionRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private WaitlistRepository waitlistRepository;
+
+    @InjectMocks
+    private ParticipationWriter participationWriter;
+
+    @Test
+    public void testParticipateAll_NoCapacity() {
+        List<Long> userIds = Arrays.asList(1L, 2L);
+        when(sessionRepository.findCapacity(1L)).thenReturn(Optional.of(capacity(1L, null)));
+        when(sessionRepository.incrementVersion(1L, 3L)).thenReturn(1);
+        when(userRepository.findExistingIds(userIds)).thenReturn(userIds);
+
+        List<ParticipationOutcome> outcomes = participationWriter.participateAll(1L, userIds);
+
+        assertEquals(ParticipationStatus.PARTICIPATING, outcomes.get(0).get());
+        assertEquals(ParticipationStatus.PARTICIPATING, outcomes.get(1).get());
+        verify(sessionRepository, times(1)).addParticipants(1L, userIds);
+        verify(sessionRepository, never()).countParticipants(anyLong());
+        verify(waitlistRepository, never()).saveAll(any());
+    }
+
+    @Test
+    public void testParticipateAll_FillsSeatsThenWaitlist() {
+        List<Long> userIds = Arrays.asList(1L, 2L, 3L);
+        when(sessionRepository.findCapacity(1L)).thenReturn(Optional.of(capacity(1L, 5)));
+        when(sessionRepository.incrementVersion(1L, 3L)).thenReturn(1);
+        when(userRepository.findExistingIds(userIds)).thenReturn(userIds);
+        when(sessionRepository.countParticipants(1L)).thenReturn(4L);
+
+        List<ParticipationOutcome> outcomes = participationWriter.participateAll(1L, userIds);
+
+        assertEquals(ParticipationStatus.PARTICIPATING, outcomes.get(0).get());
+        assertEquals(ParticipationStatus.WAITLISTED, outcomes.get(1).get());
+        assertEquals(ParticipationStatus.WAITLISTED, outcomes.get(2).get());
+        verify(sessionRepository, times(1)).addParticipants(1L, Collections.singletonList(1L));
+        verify(waitlistRepository, times(1)).saveAll(argThat(entries -> {
+            List<WaitlistEntry> list = (List<WaitlistEntry>) entries;
+            return list.size() == 2 && list.get(0).getUserId() == 2L && list.get(1).getUserId() == 3L;
+        }));
+    }
+
+    @Test
+    public void testParticipateAll_RejectsIndividually() {
+        List<Long> userIds = Arrays.asList(1L, 2L, 3L, 3L);
+        when(sessionRepository.findCapacity(1L)).thenReturn(Optional.of(capacity(1L, null)));
+        when(sessionRepository.incrementVersion(1L, 3L)).thenReturn(1);
+        when(userRepository.findExistingIds(userIds)).thenReturn(Arrays.asList(1L, 3L));
+        when(sessionRepository.findParticipantUserIds(1L, userIds)).thenReturn(Collections.singletonList(1L));
+
+        List<ParticipationOutcome> outcomes = participationWriter.participateAll(1L, userIds);
+
+        assertThrows(BadRequestException.class, () -> outcomes.get(0).get());
+        assertThrows(NotFoundException.class, () -> outcomes.get(1).get());
+        assertEquals(ParticipationStatus.PARTICIPATING, outcomes.get(2).get());
+        assertThrows(BadRequestException.class, () -> outcomes.get(3).get());
+        verify(sessionRepository, times(1)).addParticipants(1L, Collections.singletonList(3L));
+    }
+
+    @Test
+    public void testParticipateAll_AlreadyWaitlisted() {
+        List<Long> userIds = Collections.singletonList(1L);
+        when(sessionRepository.findCapacity(1L)).thenReturn(Optional.of(capacity(1L, 1)));
+        when(sessionRepository.incrementVersion(1L, 3L)).thenReturn(1);
+        when(userRepository.findExistingIds(userIds)).thenReturn(userIds);
+        when(waitlistRepository.findWaitlistedUserIds(1L, userIds)).thenReturn(userIds);
+
+        List<ParticipationOutcome> outcomes = participationWriter.participateAll(1L, userIds);
+
+        assertThrows(BadRequestException.class, () -> outcomes.get(0).get());
+        verify(waitlistRepository, never()).saveAll(any());
+    }
+
+    @Test
+    public void testParticipateAll_UnknownSession() {
+        when(sessionRepository.findCapacity(99L)).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class, () -> participationWriter.participateAll(99L, Collections.singletonList(1L)));
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    public void testParticipateAll_ConcurrentChange_FailsBeforeWriting() {
+        when(sessionRepository.findCapacity(1L)).thenReturn(Optional.of(capacity(1L, null)));
+        when(sessionRepository.incrementVersion(1L, 3L)).thenReturn(0);
+
+        assertThrows(OptimisticLockingFailureException.class,
+                () -> participationWriter.participateAll(1L, Collections.singletonList(1L)));
+        verify(sessionRepository, never()).addParticipants(anyLong(), any());
+    }
+
+    @Test
+    public void testNoLongerParticipate_Success() {
+        when(sessionRepository.findCapacity(1L)).thenReturn(Optional.of(capacity(1L, 2)));
+        when(sessionRepository.incrementVersion(1L, 3L)).thenReturn(1);
+        when(sessionRepository.removeParticipant(1L, 1L)).thenReturn(1);
+        when(sessionRepository.countParticipants(1L)).thenReturn(1L);
+        when(waitlistRepository.findFirstBySessionIdOrderByIdAsc(1L)).thenReturn(Optional.empty());
+
+        participationWriter.noLongerParticipate(1L, 1L);
+
+        verify(sessionRepository, times(1)).removeParticipant(1L, 1L);
+        verify(sessionRepository, never()).addParticipant(anyLong(), anyLong());
+    }
+
+    @Test
+    public void testNoLongerParticipate_PromotesOldestWaitlistEntry() {
+        WaitlistEntry next = WaitlistEntry.builder().id(7L).sessionId(1L).userId(2L).build();
+        when(sessionRepository.findCapacity(1L)).thenReturn(Optional.of(capacity(1L, 1)));
+        when(sessionRepository.incrementVersion(1L, 3L)).thenReturn(1);
+        when(sessionRepository.removeParticipant(1L, 1L)).thenReturn(1);
+        when(sessionRepository.countParticipants(1L)).thenReturn(0L, 1L);
+        when(waitlistRepository.findFirstBySessionIdOrderByIdAsc(1L)).thenReturn(Optional.of(next));
+
+        participationWriter.noLongerParticipate(1L, 1L);
+
+        verify(waitlistRepository, times(1)).delete(next);
+        verify(sessionRepository, times(1)).addParticipant(1L, 2L);
+    }
+
+    @Test
+    public void testNoLongerParticipate_LeavesWaitlist() {
+        when(sessionRepository.findCapacity(1L)).thenReturn(Optional.of(capacity(1L, 1)));
+        when(sessionRepository.incrementVersion(1L, 3L)).thenReturn(1);
+        when(sessionRepository.removeParticipant(1L, 2L)).thenReturn(0);
+        when(waitlistRepository.deleteBySessionIdAndUserId(1L, 2L)).thenReturn(1);
+
+        participationWriter.noLongerParticipate(1L, 2L);
+
+        verify(sessionRepository, never()).addParticipant(anyLong(), anyLong());
+    }
+
+    @Test
+    public void testNoLongerParticipate_NotParticipating() {
+        when(sessionRepository.findCapacity(1L)).thenReturn(Optional.of(capacity(1L, null)));
+        when(sessionRepository.incrementVersion(1L, 3L)).thenReturn(1);
+        when(sessionRepository.removeParticipant(1L, 2L)).thenReturn(0);
+
+        assertThrows(BadRequestException.class, () -> participationWriter.noLongerParticipate(1L, 2L));
+    }
+
+    @Test
+    public void testNoLongerParticipate_UnknownSession() {
+        when(sessionRepository.findCapacity(99L)).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class, () -> participationWriter.noLongerParticipate(99L, 1L));
+    }
+
+    private SessionCapacity capacity(Long id, Integer capacity) {
+        return new SessionCapacity() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public Integer getCapacity() {
+                return capacity;
+            }
+
+            @Override
+            public Long getVersion() {
+                return 3L;
+            }
+        };
+    }
+}
@@ -0,0 +1,317 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.projection.CollectionVersion;
+import com.openclassrooms.starterjwt.repository.projection.ParticipantId;
+import com.openclassrooms.starterjwt.repository.projection.SessionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SessionCatalogTest {
+
+    @Mock
+    private SessionRepository sessionRepository;
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void current_ServesTheSameSnapshotUntilInvalidated() {
+        SessionCatalog catalog = new SessionCatalog(sessionRepository, 60000);
+        when(sessionRepository.findAllSummaries()).thenReturn(Arrays.asList(summary(1L, 2L), summary(2L, 3L)));
+        when(sessionRepository.findAllParticipantIds()).thenReturn(Collections.singletonList(participant(1L, 7L)));
+
+        SessionCatalog.Snapshot first = catalog.current();
+
+        assertSame(first, catalog.current());
+        assertEquals(Collections.singletonList(7L), first.getSessionsById().get(1L).getUsers());
+        assertEquals(Collections.emptyList(), first.getSessionsById().get(2L).getUsers());
+        assertEquals(2L, first.getVersion().getCount());
+        assertEquals(2L, first.getVersion().getMaxId());
+        assertThrows(UnsupportedOperationException.class, () -> first.getSessions().clear());
+        verify(sessionRepository, times(1)).findAllSummaries();
+
+        catalog.invalidate();
+
+        assertNotSame(first, catalog.current());
+        verify(sessionRepository, times(2)).findAllSummaries();
+    }
+
+    @Test
+    void currentIfFresh_NeverRebuilds() {
+        SessionCatalog catalog = new SessionCatalog(sessionRepository, 60000);
+        when(sessionRepository.findAllSummaries()).thenReturn(Collections.emptyList());
+
+        assertNull(catalog.currentIfFresh());
+        SessionCatalog.Snapshot first = catalog.current();
+        assertSame(first, catalog.currentIfFresh());
+
+        catalog.invalidate();
+
+        assertNull(catalog.currentIfFresh());
+        verify(sessionRepository, times(1)).findAllSummaries();
+    }
+
+    @Test
+    void invalidate_InTransaction_TakesEffectAfterCommit() {
+        SessionCatalog catalog = new SessionCatalog(sessionRepository, 60000);
+        when(sessionRepository.findAllSummaries()).thenReturn(Collections.emptyList());
+        SessionCatalog.Snapshot first = catalog.current();
+
+        TransactionSynchronizationManager.initSynchronization();
+        catalog.invalidate();
+
+        assertSame(first, catalog.current());
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+
+        assertNotSame(first, catalog.current());
+    }
+
+    @Test
+    void refresh_FreshSnapshot_ReloadsOnlyThatSession() {
+        SessionCatalog catalog = new SessionCatalog(sessionRepository, 60000);
+        when(sessionRepository.findAllSummaries()).thenReturn(Arrays.asList(summary(1L, 2L), summary(2L, 3L)));
+        SessionCatalog.Snapshot first = catalog.current();
+        when(sessionRepository.findSummaryById(1L)).thenReturn(Optional.of(summary(1L, 3L)));
+        when(sessionRepository.findParticipantIds(List.of(1L))).thenReturn(Collections.singletonList(participant(1L, 8L)));
+
+        catalog.refresh(1L);
+
+        SessionCatalog.Snapshot patched = catalog.current();
+        assertEquals(Arrays.asList(1L, 2L), patched.getSessions().stream().map(SessionSummary::getId).collect(Collectors.toList()));
+        assertEquals(Long.valueOf(3L), patched.getSessionsById().get(1L).getVersion());
+        assertEquals(Collections.singletonList(8L), patched.getSessionsById().get(1L).getUsers());
+        assertSame(first.getSessionsById().get(2L), patched.getSessionsById().get(2L));
+        assertSame(patched, catalog.current());
+        assertNotEquals(first.getVersion(), patched.getVersion());
+        assertEquals(first.getLoadedAt(), patched.getLoadedAt());
+        verify(sessionRepository, times(1)).findAllSummaries();
+    }
+
+    @Test
+    void refresh_DeletedSession_IsRemoved() {
+        SessionCatalog catalog = new SessionCatalog(sessionRepository, 60000);
+        when(sessionRepository.findAllSummaries()).thenReturn(Arrays.asList(summary(1L, 2L), summary(2L, 3L)));
+        catalog.current();
+        when(sessionRepository.findSummaryById(1L)).thenReturn(Optional.empty());
+
+        catalog.refresh(1L);
+
+        assertEquals(Collections.singleton(2L), catalog.current().getSessionsById().keySet());
+        verify(sessionRepository, never()).findParticipantIds(anyCollection());
+    }
+
+    @Test
+    void refresh_OlderVersionThanTheSnapshot_KeepsTheSnapshot() {
+        SessionCatalog catalog = new SessionCatalog(sessionRepository, 60000);
+        when(sessionRepository.findAllSummaries()).thenReturn(Collections.singletonList(summary(1L, 5L)));
+        SessionCatalog.Snapshot first = catalog.current();
+        when(sessionRepository.findSummaryById(1L)).thenReturn(Optional.of(summary(1L, 4L)));
+
+        catalog.refresh(1L);
+
+        assertSame(first, catalog.current());
+    }
+
+    @Test
+    void refresh_StaleSnapshot_RebuildsOnNextRead() {
+        SessionCatalog catalog = new SessionCatalog(sessionRepository, 60000);
+        when(sessionRepository.findAllSummaries()).thenReturn(Collections.singletonList(summary(1L, 0L)));
+
+        catalog.refresh(1L);
+        catalog.current();
+
+        verify(sessionRepository, never()).findSummaryById(any());
+        verify(sessionRepository, times(1)).findAllSummaries();
+    }
+
+    @Test
+    void refresh_InTransaction_InvalidatesAfterCommit() {
+        SessionCatalog catalog = new SessionCatalog(sessionRepository, 60000);
+        when(sessionRepository.findAllSummaries()).thenReturn(Collections.emptyList());
+        SessionCatalog.Snapshot first = catalog.current();
+
+        TransactionSynchronizationManager.initSynchronization();
+        catalog.refresh(1L);
+
+        assertSame(first, catalog.current());
+        verify(sessionRepository, never()).findSummaryById(any());
+    }
+
+    @Test
+    void refresh_ConcurrentInvalidate_IsNeverLost() throws Exception {
+        SessionCatalog catalog = new SessionCatalog(sessionRepository, 60000);
+        AtomicLong version = new AtomicLong();
+        when(sessionRepository.findAllSummaries()).thenAnswer(invocation -> Collections.singletonList(summary(1L, version.get())));
+        when(sessionRepository.findSummaryById(1L)).thenAnswer(invocation -> Optional.of(summary(1L, version.incrementAndGet())));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int i = 0; i < 500; i++) {
+                // Staggers the invalidation across the steps of the refresh.
+                long delayNanos = TimeUnit.MICROSECONDS.toNanos(i % 50);
+                catalog.current();
+                long loads = catalog.getLoadCount();
+                CyclicBarrier start = new CyclicBarrier(2);
+                Future<?> refresh = executor.submit(() -> {
+                    start.await();
+                    catalog.refresh(1L);
+                    return null;
+                });
+                Future<?> invalidate = executor.submit(() -> {
+                    start.await();
+                    LockSupport.parkNanos(delayNanos);
+                    catalog.invalidate();
+                    return null;
+                });
+                refresh.get(5, TimeUnit.SECONDS);
+                invalidate.get(5, TimeUnit.SECONDS);
+
+                catalog.current();
+                assertEquals(loads + 1, catalog.getLoadCount(), "invalidation lost in round " + i);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void current_ConcurrentReadsOfAStaleSnapshot_ShareOneRebuild() throws Exception {
+        SessionCatalog catalog = new SessionCatalog(sessionRepository, 60000);
+        CountDownLatch release = new CountDownLatch(1);
+        when(sessionRepository.findAllSummaries()).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return Collections.singletonList(summary(1L, 0L));
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<SessionCatalog.Snapshot>> reads = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                reads.add(executor.submit(catalog::current));
+            }
+            long deadline = System.currentTimeMillis() + 5000;
+            while (catalog.getCoalescedLoadCount() < 7 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            for (Future<SessionCatalog.Snapshot> read : reads) {
+                assertEquals(1, read.get(5, TimeUnit.SECONDS).getSessions().size());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, catalog.getLoadCount());
+        assertEquals(7, catalog.getCoalescedLoadCount());
+        verify(sessionRepository, times(1)).findAllSummaries();
+    }
+
+    @Test
+    void bindTo_PublishesLoads() {
+        SessionCatalog catalog = new SessionCatalog(sessionRepository, 60000);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        catalog.bindTo(registry);
+        when(sessionRepository.findAllSummaries()).thenReturn(Collections.emptyList());
+
+        catalog.current();
+        catalog.current();
+
+        assertEquals(1, registry.get("sessions.catalog.loads").functionCounter().count());
+        assertEquals(0, registry.get("sessions.catalog.loads.coalesced").functionCounter().count());
+    }
+
+    @Test
+    void current_ExpiredSnapshot_IsReloaded() {
+        SessionCatalog catalog = new SessionCatalog(sessionRepository, 0);
+        when(sessionRepository.findAllSummaries()).thenReturn(Collections.emptyList());
+
+        catalog.current();
+        catalog.current();
+
+        verify(sessionRepository, times(2)).findAllSummaries();
+    }
+
+    @Test
+    void current_EmptyCatalog_HasEmptyVersion() {
+        SessionCatalog catalog = new SessionCatalog(sessionRepository, 60000);
+        when(sessionRepository.findAllSummaries()).thenReturn(Collections.emptyList());
+
+        assertEquals(new CollectionVersion(0L, null, (String) null), catalog.current().getVersion());
+    }
+
+    @Test
+    void version_DeleteThenCreateBelowTheHighestId_Changes() {
+        CollectionVersion before = snapshot(summary(1L, 0L), summary(51L, 0L)).getVersion();
+        CollectionVersion after = snapshot(summary(2L, 0L), summary(51L, 0L)).getVersion();
+
+        assertEquals(before.getCount(), after.getCount());
+        assertEquals(before.getMaxId(), after.getMaxId());
+        assertNotEquals(before, after);
+    }
+
+    @Test
+    void version_MovingAVersionBetweenSessions_Changes() {
+        assertNotEquals(snapshot(summary(1L, 1L), summary(2L, 0L)).getVersion(),
+                snapshot(summary(1L, 0L), summary(2L, 1L)).getVersion());
+    }
+
+    @Test
+    void version_SameSessions_IsTheSameOnEveryNode() {
+        assertEquals(snapshot(summary(1L, 3L), summary(2L, 0L)).getVersion(),
+                snapshot(summary(1L, 3L), summary(2L, 0L)).getVersion());
+    }
+
+    private SessionCatalog.Snapshot snapshot(SessionSummary... sessions) {
+        return new SessionCatalog.Snapshot(0, 0, Arrays.asList(sessions), Collections.emptyList());
+    }
+
+    private SessionSummary summary(Long id, Long version) {
+        return new SessionSummary(id, "Session " + id, new Date(), "A session", 1L, null, version, null, null);
+    }
+
+    private ParticipantId participant(Long sessionId, Long userId) {
+        return new ParticipantId() {
+            @Override
+            public Long getSessionId() {
+                return sessionId;
+            }
+
+            @Override
+            public Long getUserId() {
+                return userId;
+            }
+        };
+    }
+}
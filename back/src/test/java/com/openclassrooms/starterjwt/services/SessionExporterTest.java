@@ -0,0 +1,95 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.mapper.SessionMapper;
+import com.openclassrooms.starterjwt.repository.projection.SessionSummary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SessionExporterTest {
+
+    @Mock
+    private SessionService sessionService;
+
+    @Mock
+    private SessionMapper sessionMapper;
+
+    private SessionExporter sessionExporter;
+
+    @BeforeEach
+    void setUp() {
+        sessionExporter = new SessionExporter(sessionService, sessionMapper, Jackson2ObjectMapperBuilder.json().build(), 2);
+    }
+
+    @Test
+    void export_WritesOneLinePerSessionAcrossChunks() throws IOException {
+        Date date = new Date(1700000000000L);
+        when(sessionService.findPage(0, 2)).thenReturn(Arrays.asList(summary(1L, date), summary(2L, date)));
+        when(sessionService.findAfter(date, 2L, 2)).thenReturn(Collections.singletonList(summary(3L, date)));
+        when(sessionMapper.summariesToDto(anyList())).thenAnswer(invocation -> toDtos(invocation.getArgument(0)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long count = sessionExporter.export(out);
+
+        String body = out.toString(StandardCharsets.UTF_8);
+        String[] lines = body.split("\n");
+        assertEquals(3, count);
+        assertTrue(body.endsWith("}\n"));
+        assertEquals(3, lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            assertTrue(lines[i].startsWith("{\"id\":" + (i + 1) + ","), lines[i]);
+        }
+        assertTrue(lines[2].contains("\"users\":[1,2]"));
+        verify(sessionService, times(1)).findAfter(any(Date.class), anyLong(), anyInt());
+    }
+
+    @Test
+    void export_FullLastChunk_StopsOnEmptyChunk() throws IOException {
+        Date date = new Date(1700000000000L);
+        when(sessionService.findPage(0, 2)).thenReturn(Arrays.asList(summary(1L, date), summary(2L, date)));
+        when(sessionService.findAfter(date, 2L, 2)).thenReturn(Collections.emptyList());
+        when(sessionMapper.summariesToDto(anyList())).thenAnswer(invocation -> toDtos(invocation.getArgument(0)));
+
+        assertEquals(2, sessionExporter.export(new ByteArrayOutputStream()));
+    }
+
+    @Test
+    void export_NoSessions_WritesNothing() throws IOException {
+        when(sessionService.findPage(0, 2)).thenReturn(Collections.emptyList());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(0, sessionExporter.export(out));
+        assertEquals(0, out.size());
+        verifyNoInteractions(sessionMapper);
+    }
+
+    private SessionSummary summary(Long id, Date date) {
+        return new SessionSummary(id, "Session " + id, date, "A session", 1L, null, Arrays.asList(1L, 2L), 0L, null, null);
+    }
+
+    private List<SessionDto> toDtos(List<SessionSummary> summaries) {
+        return summaries.stream()
+                .map(summary -> new SessionDto(summary.getId(), summary.getName(), summary.getDate(), summary.getTeacherId(),
+                        summary.getDescription(), null, summary.getUsers(), summary.getVersion(), null, null))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,182 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.mapper.SessionMapper;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.payload.response.SessionImportResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import javax.validation.Validation;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SessionImporterTest {
+
+    private static final String VALID = "{\"name\":\"Session %d\",\"date\":\"2024-01-01T10:00:00.000+00:00\",\"teacher_id\":1,\"description\":\"Yoga\"}";
+
+    @Mock
+    private SessionMapper sessionMapper;
+
+    @Mock
+    private SessionService sessionService;
+
+    private SessionImporter sessionImporter;
+
+    @BeforeEach
+    void setUp() {
+        sessionImporter = new SessionImporter(Jackson2ObjectMapperBuilder.json().build(),
+                Validation.buildDefaultValidatorFactory().getValidator(), sessionMapper, sessionService, 2);
+    }
+
+    @Test
+    void importSessions_JsonArray_SavesInBatches() throws IOException {
+        stubSaving();
+
+        SessionImportResponse response = importSessions("[" + valid(0) + "," + valid(1) + "," + valid(2) + "]");
+
+        assertEquals(3, response.getImported());
+        assertTrue(response.getErrors().isEmpty());
+        verify(sessionService, times(2)).createAll(anyList());
+    }
+
+    @Test
+    void importSessions_Ndjson_ImportsEveryLine() throws IOException {
+        stubSaving();
+
+        SessionImportResponse response = importSessions(valid(0) + "\n" + valid(1) + "\n");
+
+        assertEquals(2, response.getImported());
+        verify(sessionService, times(1)).createAll(anyList());
+    }
+
+    @Test
+    void importSessions_InvalidItems_AreReportedAndSkipped() throws IOException {
+        stubSaving();
+
+        SessionImportResponse response = importSessions("[{\"name\":\"\",\"date\":null,\"teacher_id\":1,\"description\":\"Yoga\"},"
+                + "{\"name\":\"Session\",\"date\":\"not a date\"},"
+                + valid(2) + "]");
+
+        assertEquals(1, response.getImported());
+        assertEquals(2, response.getErrors().size());
+        assertEquals(0, response.getErrors().get(0).getIndex());
+        assertEquals("date must not be null, name must not be blank", response.getErrors().get(0).getMessage());
+        assertEquals(1, response.getErrors().get(1).getIndex());
+    }
+
+    @Test
+    void importSessions_UsersAboveCapacity_AreReportedAndSkipped() throws IOException {
+        stubSaving();
+
+        SessionImportResponse response = importSessions("[{\"name\":\"Session\",\"date\":\"2024-01-01T10:00:00.000+00:00\","
+                + "\"teacher_id\":1,\"description\":\"Yoga\",\"capacity\":1,\"users\":[1,2]}," + valid(1) + "]");
+
+        assertEquals(1, response.getImported());
+        assertEquals(1, response.getErrors().size());
+        assertEquals(0, response.getErrors().get(0).getIndex());
+        assertEquals("users must not exceed capacity", response.getErrors().get(0).getMessage());
+    }
+
+    @Test
+    void importSessions_IgnoresIdsOfTheImportedItems() throws IOException {
+        List<SessionDto> mapped = new ArrayList<>();
+        when(sessionMapper.toEntity(anyList())).thenAnswer(invocation -> {
+            mapped.addAll(invocation.getArgument(0));
+            return toSessions(mapped);
+        });
+
+        importSessions("{\"id\":7,\"version\":3,\"name\":\"Session\",\"date\":\"2024-01-01T10:00:00.000+00:00\",\"teacher_id\":1,\"description\":\"Yoga\"}");
+
+        assertNull(mapped.get(0).getId());
+        assertNull(mapped.get(0).getVersion());
+    }
+
+    @Test
+    void importSessions_UnknownTeacher_FailsOnlyThatItem() throws IOException {
+        when(sessionMapper.toEntity(anyList())).thenAnswer(invocation -> {
+            List<SessionDto> dtos = invocation.getArgument(0);
+            if (dtos.stream().anyMatch(dto -> dto.getTeacher_id() == 9L)) {
+                throw new BadRequestException();
+            }
+            return toSessions(dtos);
+        });
+        when(sessionService.createAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        SessionImportResponse response = importSessions("[" + valid(0) + ","
+                + "{\"name\":\"Session\",\"date\":\"2024-01-01T10:00:00.000+00:00\",\"teacher_id\":9,\"description\":\"Yoga\"}]");
+
+        assertEquals(1, response.getImported());
+        assertEquals(Collections.singletonList(1), response.getErrors().stream()
+                .map(SessionImportResponse.ItemError::getIndex)
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    void importSessions_RejectedByTheDatabase_FailsOnlyThatItem() throws IOException {
+        when(sessionMapper.toEntity(anyList())).thenAnswer(invocation -> toSessions(invocation.getArgument(0)));
+        when(sessionService.createAll(anyList())).thenAnswer(invocation -> {
+            List<Session> sessions = invocation.getArgument(0);
+            if (sessions.stream().anyMatch(session -> session.getName().equals("Session 1"))) {
+                throw new DataIntegrityViolationException("could not execute statement",
+                        new IllegalStateException("Value too long for column DESCRIPTION"));
+            }
+            return sessions;
+        });
+
+        SessionImportResponse response = importSessions("[" + valid(0) + "," + valid(1) + "," + valid(2) + "]");
+
+        assertEquals(2, response.getImported());
+        assertEquals(1, response.getErrors().size());
+        assertEquals(1, response.getErrors().get(0).getIndex());
+        assertEquals("Rejected by the database: Value too long for column DESCRIPTION",
+                response.getErrors().get(0).getMessage());
+    }
+
+    @Test
+    void importSessions_MalformedJson_KeepsEarlierBatches() throws IOException {
+        stubSaving();
+
+        SessionImportResponse response = importSessions("[" + valid(0) + "," + valid(1) + ",{\"name\": ]");
+
+        assertEquals(2, response.getImported());
+        assertEquals(1, response.getErrors().size());
+        assertEquals(2, response.getErrors().get(0).getIndex());
+        assertTrue(response.getErrors().get(0).getMessage().startsWith("Malformed JSON"));
+    }
+
+    private void stubSaving() {
+        when(sessionMapper.toEntity(anyList())).thenAnswer(invocation -> toSessions(invocation.getArgument(0)));
+        when(sessionService.createAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    private List<Session> toSessions(List<SessionDto> dtos) {
+        return dtos.stream()
+                .map(dto -> Session.builder().name(dto.getName()).build())
+                .collect(Collectors.toList());
+    }
+
+    private SessionImportResponse importSessions(String body) throws IOException {
+        return sessionImporter.importSessions(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private String valid(int index) {
+        return String.format(VALID, index);
+    }
+}
@@ -0,0 +1,175 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.repository.WaitlistRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Many concurrent sign-ups for one hot session, committed for real against
+ * H2, must fill the session exactly to capacity and waitlist everyone else.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:participation;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=30000",
+        "spring.datasource.hikari.maximum-pool-size=16",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({SessionService.class, SignupCoordinator.class, ParticipationWriter.class, SessionCatalog.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SessionServiceConcurrencyTest {
+    private static final Logger logger = LoggerFactory.getLogger(SessionServiceConcurrencyTest.class);
+
+    private static final int CAPACITY = 20;
+
+    private static final int USERS = 200;
+
+    private static final int THREADS = 16;
+
+    @Autowired
+    private SessionService sessionService;
+
+    @Autowired
+    private SessionRepository sessionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TeacherRepository teacherRepository;
+
+    @Autowired
+    private WaitlistRepository waitlistRepository;
+
+    @Autowired
+    private SignupCoordinator signupCoordinator;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Session session;
+
+    private List<User> users;
+
+    @BeforeEach
+    void setUp() {
+        Teacher teacher = teacherRepository.save(Teacher.builder().firstName("Margot").lastName("Delahaye").build());
+        session = sessionRepository.save(Session.builder()
+                .name("Hot session")
+                .description("description")
+                .date(new Date())
+                .capacity(CAPACITY)
+                .teacher(teacher)
+                .users(new ArrayList<>())
+                .build());
+
+        users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            users.add(userRepository.save(new User("user" + i + "@test.com", "Doe", "John", "password", false)));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        waitlistRepository.deleteAll();
+        sessionRepository.deleteAll();
+        userRepository.deleteAll();
+        teacherRepository.deleteAll();
+    }
+
+    @Test
+    void participate_concurrentSignUps_neverOverbook() throws Exception {
+        List<Callable<ParticipationStatus>> signUps = new ArrayList<>();
+        for (User user : users) {
+            signUps.add(() -> sessionService.participate(session.getId(), user.getId()));
+        }
+
+        long start = System.nanoTime();
+        List<ParticipationStatus> statuses = runConcurrently(signUps);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        logger.info("{} concurrent sign-ups on {} threads in {} s ({} sign-ups/s, {} write transactions)",
+                USERS, THREADS, String.format("%.3f", seconds), Math.round(USERS / seconds), signupCoordinator.getBatchCount());
+
+        assertThat(statuses).filteredOn(status -> status == ParticipationStatus.PARTICIPATING).hasSize(CAPACITY);
+        assertThat(sessionRepository.countParticipants(session.getId())).isEqualTo(CAPACITY);
+        assertThat(countRows("WAITLIST", "session_id = ?", session.getId())).isEqualTo(USERS - CAPACITY);
+    }
+
+    @Test
+    void noLongerParticipate_concurrentCancellations_promoteInOrder() throws Exception {
+        for (User user : users.subList(0, CAPACITY + 10)) {
+            sessionService.participate(session.getId(), user.getId());
+        }
+
+        List<Callable<Void>> cancellations = new ArrayList<>();
+        for (User user : users.subList(0, 5)) {
+            cancellations.add(() -> {
+                sessionService.noLongerParticipate(session.getId(), user.getId());
+                return null;
+            });
+        }
+        runConcurrently(cancellations);
+
+        assertThat(sessionRepository.countParticipants(session.getId())).isEqualTo(CAPACITY);
+        assertThat(countRows("WAITLIST", "session_id = ?", session.getId())).isEqualTo(5);
+        for (User promoted : users.subList(CAPACITY, CAPACITY + 5)) {
+            assertThat(countRows("PARTICIPATE", "session_id = ? and user_id = ?", session.getId(), promoted.getId()))
+                    .isEqualTo(1);
+        }
+    }
+
+    private long countRows(String table, String where, Object... args) {
+        return jdbcTemplate.queryForObject("select count(*) from " + table + " where " + where, Long.class, args);
+    }
+
+    private <T> List<T> runConcurrently(List<Callable<T>> tasks) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch ready = new CountDownLatch(1);
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (Callable<T> task : tasks) {
+                futures.add(executor.submit(() -> {
+                    ready.await();
+                    return task.call();
+                }));
+            }
+            ready.countDown();
+
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get(60, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -1,11 +1,17 @@
 package com.openclassrooms.starterjwt.services;
 
 import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.exception.ConflictException;
 import com.openclassrooms.starterjwt.exception.NotFoundException;
 import com.openclassrooms.starterjwt.models.Session;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.models.WaitlistEntry;
 import com.openclassrooms.starterjwt.repository.SessionRepository;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.repository.WaitlistRepository;
+import com.openclassrooms.starterjwt.repository.projection.ParticipantId;
+import com.openclassrooms.starterjwt.repository.projection.SessionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import lombok.Builder;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -13,15 +19,25 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
@@ -31,16 +47,24 @@ public class SessionServiceTest {
     @Mock
     private SessionRepository sessionRepository;
 
+    @Mock
+    private WaitlistRepository waitlistRepository;
+
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private SignupCoordinator signupCoordinator;
+
+    @Mock
+    private SessionCatalog sessionCatalog;
+
     @InjectMocks
     private SessionService sessionService;
 
     private Session session;
     private User user;
     private User anotherUser;
-    private List<Session> sessionList;
 
     @BeforeEach
     public void setUp() {
@@ -73,14 +97,6 @@ public class SessionServiceTest {
                 .users(new ArrayList<>())
                 .build();
 
-        Session anotherSession = Session.builder()
-                .id(2L)
-                .name("Pilates Session")
-                .description("An energizing pilates session")
-                .users(new ArrayList<>())
-                .build();
-
-        sessionList = Arrays.asList(session, anotherSession);
     }
 
     @Test
@@ -92,6 +108,39 @@ public class SessionServiceTest {
         assertNotNull(result);
         assertEquals(session, result);
         verify(sessionRepository, times(1)).save(any(Session.class));
+        verify(sessionCatalog, times(1)).invalidate();
+    }
+
+    @Test
+    public void testCreateAll() {
+        List<Session> sessions = Collections.singletonList(session);
+        when(sessionRepository.saveAll(sessions)).thenReturn(sessions);
+
+        assertEquals(sessions, sessionService.createAll(sessions));
+    }
+
+    @Test
+    public void testCreate_ParticipantsAboveCapacity_IsRejected() {
+        session.setCapacity(1);
+        session.getUsers().addAll(Arrays.asList(user, anotherUser));
+
+        assertThrows(BadRequestException.class, () -> sessionService.create(session));
+        verify(sessionRepository, never()).save(any(Session.class));
+        verify(sessionCatalog, never()).invalidate();
+    }
+
+    @Test
+    public void testCreateAll_ParticipantsAboveCapacity_IsRejected() {
+        Session full = Session.builder()
+                .name("Full Yoga Session")
+                .capacity(1)
+                .users(new ArrayList<>(Arrays.asList(user, anotherUser)))
+                .build();
+        List<Session> sessions = Arrays.asList(session, full);
+
+        assertThrows(BadRequestException.class, () -> sessionService.createAll(sessions));
+        verify(sessionRepository, never()).saveAll(anyList());
+        verify(sessionCatalog, never()).invalidate();
     }
 
     @Test
@@ -99,21 +148,113 @@ public class SessionServiceTest {
 
         sessionService.delete(1L);
 
+        verify(waitlistRepository, times(1)).deleteBySessionId(1L);
         verify(sessionRepository, times(1)).deleteById(1L);
+        verify(sessionCatalog, times(1)).invalidate();
     }
 
     @Test
     public void testFindAll() {
+        SessionCatalog.Snapshot snapshot = new SessionCatalog.Snapshot(0, 0, Arrays.asList(summary(1L), summary(2L)),
+                Arrays.asList(participant(1L, 1L), participant(1L, 2L), participant(2L, 2L)));
+        when(sessionCatalog.current()).thenReturn(snapshot);
+        when(sessionCatalog.currentIfFresh()).thenReturn(snapshot);
+
+        List<SessionSummary> result = sessionService.findAll();
+
+        assertEquals(2, result.size());
+        assertEquals(Arrays.asList(1L, 2L), result.get(0).getUsers());
+        assertEquals(Collections.singletonList(2L), result.get(1).getUsers());
+        assertEquals(result.get(1), sessionService.findSummary(2L));
+        assertNull(sessionService.findSummary(3L));
+        verifyNoInteractions(sessionRepository);
+        verify(sessionCatalog, never()).load(anyLong());
+    }
 
-        when(sessionRepository.findAll()).thenReturn(sessionList);
+    @Test
+    public void testFindSummary_StaleCatalog_LoadsOnlyThatSession() {
+        SessionSummary loaded = summary(2L);
+        when(sessionCatalog.load(2L)).thenReturn(loaded);
+
+        assertSame(loaded, sessionService.findSummary(2L));
+        assertNull(sessionService.findSummary(3L));
+        verify(sessionCatalog, never()).current();
+        assertEquals(2, sessionService.getSessionLoadCount());
+    }
 
+    @Test
+    public void testFindSummary_ConcurrentReadsOfOneSession_ShareOneLoad() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(sessionCatalog.load(1L)).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return summary(1L);
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<SessionSummary>> reads = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                reads.add(executor.submit(() -> sessionService.findSummary(1L)));
+            }
+            long deadline = System.currentTimeMillis() + 5000;
+            while (sessionService.getCoalescedSessionLoadCount() < 7 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            SessionSummary first = reads.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<SessionSummary> read : reads) {
+                assertSame(first, read.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, sessionService.getSessionLoadCount());
+        assertEquals(7, sessionService.getCoalescedSessionLoadCount());
+        verify(sessionCatalog, times(1)).load(1L);
+    }
 
-        List<Session> result = sessionService.findAll();
+    @Test
+    public void testBindTo_PublishesSessionLoads() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        sessionService.bindTo(registry);
 
+        sessionService.findSummary(1L);
 
-        assertNotNull(result);
-        assertEquals(sessionList, result);
-        verify(sessionRepository, times(1)).findAll();
+        assertEquals(1, registry.get("sessions.reads.loads").functionCounter().count());
+        assertEquals(0, registry.get("sessions.reads.loads.coalesced").functionCounter().count());
+    }
+
+    @Test
+    public void testFindPage() {
+        when(sessionRepository.findSummaryPage(PageRequest.of(1, 2))).thenReturn(Arrays.asList(summary(3L), summary(4L)));
+        when(sessionRepository.findParticipantIds(Arrays.asList(3L, 4L))).thenReturn(
+                Collections.singletonList(participant(4L, 1L)));
+
+        List<SessionSummary> result = sessionService.findPage(1, 2);
+
+        assertEquals(Collections.emptyList(), result.get(0).getUsers());
+        assertEquals(Collections.singletonList(1L), result.get(1).getUsers());
+    }
+
+    @Test
+    public void testFindAfter() {
+        Date date = new Date();
+        when(sessionRepository.findSummariesAfter(date, 1L, PageRequest.of(0, 2))).thenReturn(Collections.singletonList(summary(2L)));
+        when(sessionRepository.findParticipantIds(Collections.singletonList(2L))).thenReturn(Collections.emptyList());
+
+        List<SessionSummary> result = sessionService.findAfter(date, 1L, 2);
+
+        assertEquals(1, result.size());
+        assertEquals(2L, result.get(0).getId());
+    }
+
+    @Test
+    public void testFindAfter_EmptyPage_SkipsParticipantQuery() {
+        Date date = new Date();
+        when(sessionRepository.findSummariesAfter(date, 9L, PageRequest.of(0, 2))).thenReturn(Collections.emptyList());
+
+        assertTrue(sessionService.findAfter(date, 9L, 2).isEmpty());
+        verify(sessionRepository, never()).findParticipantIds(any());
     }
 
     @Test
@@ -139,58 +280,158 @@ public class SessionServiceTest {
 
     @Test
     public void testUpdate() {
+        session.setVersion(4L);
+        session.getUsers().add(user);
 
         Session updatedSession = Session.builder()
                 .name("Updated Yoga Session")
                 .description("An updated yoga session description")
+                .version(4L)
                 .build();
 
-        Session updatedSession1 = Session.builder()
-                .id(1L)
-                .name("Updated Yoga Session")
-                .description("An updated yoga session description")
-                .build();
-
-
-        when(sessionRepository.save(any(Session.class))).thenReturn(updatedSession1);
+        when(sessionRepository.findById(1L)).thenReturn(Optional.of(session));
+        when(sessionRepository.saveAndFlush(session)).thenReturn(session);
         Session result = sessionService.update(1L, updatedSession);
 
 
         assertNotNull(result);
         assertEquals(1L, result.getId());
         assertEquals("Updated Yoga Session", result.getName());
-        verify(sessionRepository, times(1)).save(any(Session.class));
+        assertEquals(Collections.singletonList(user), result.getUsers());
+        verify(sessionRepository, times(1)).saveAndFlush(session);
     }
 
     @Test
-    public void testParticipate_Success() {
+    public void testUpdate_SameUsers_KeepsThem() {
+        session.getUsers().add(user);
+        Session updatedSession = Session.builder()
+                .name("Updated Yoga Session")
+                .users(new ArrayList<>(Collections.singletonList(user)))
+                .build();
 
         when(sessionRepository.findById(1L)).thenReturn(Optional.of(session));
-        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
-        when(sessionRepository.save(any(Session.class))).thenReturn(session);
+        when(sessionRepository.saveAndFlush(session)).thenReturn(session);
 
-        sessionService.participate(1L, 1L);
+        assertEquals(Collections.singletonList(user), sessionService.update(1L, updatedSession).getUsers());
+    }
 
-        verify(sessionRepository, times(1)).findById(1L);
-        verify(userRepository, times(1)).findById(1L);
-        verify(sessionRepository, times(1)).save(session);
-        assertTrue(session.getUsers().contains(user));
+    @Test
+    public void testUpdate_ChangedUsers_IsRejected() {
+        session.getUsers().add(user);
+        Session updatedSession = Session.builder()
+                .name("Updated Yoga Session")
+                .users(new ArrayList<>(Collections.singletonList(anotherUser)))
+                .build();
+        when(sessionRepository.findById(1L)).thenReturn(Optional.of(session));
+
+        assertThrows(BadRequestException.class, () -> sessionService.update(1L, updatedSession));
+        assertEquals(Collections.singletonList(user), session.getUsers());
+        verify(sessionRepository, never()).saveAndFlush(any(Session.class));
     }
 
     @Test
-    public void testNoLongerParticipate_Success() {
+    public void testUpdate_CapacityBelowParticipants_IsRejected() {
+        session.getUsers().addAll(Arrays.asList(user, anotherUser));
+        Session updatedSession = Session.builder().name("Updated Yoga Session").capacity(1).build();
+        when(sessionRepository.findById(1L)).thenReturn(Optional.of(session));
+
+        assertThrows(BadRequestException.class, () -> sessionService.update(1L, updatedSession));
+        verify(sessionRepository, never()).saveAndFlush(any(Session.class));
+    }
 
+    @Test
+    public void testUpdate_LargerCapacity_PromotesOldestWaitlisted() {
+        session.setCapacity(1);
         session.getUsers().add(user);
+        WaitlistEntry waiting = WaitlistEntry.builder().id(7L).sessionId(1L).userId(2L).build();
+        Session updatedSession = Session.builder().name("Updated Yoga Session").capacity(2).build();
+
         when(sessionRepository.findById(1L)).thenReturn(Optional.of(session));
-        when(sessionRepository.save(any(Session.class))).thenReturn(session);
+        when(waitlistRepository.findFirstBySessionIdOrderByIdAsc(1L)).thenReturn(Optional.of(waiting));
+        when(userRepository.getById(2L)).thenReturn(anotherUser);
+        when(sessionRepository.saveAndFlush(session)).thenReturn(session);
 
+        assertEquals(Arrays.asList(user, anotherUser), sessionService.update(1L, updatedSession).getUsers());
+        verify(waitlistRepository, times(1)).delete(waiting);
+        verify(waitlistRepository, times(1)).findFirstBySessionIdOrderByIdAsc(1L);
+    }
 
-        sessionService.noLongerParticipate(1L, 1L);
+    @Test
+    public void testUpdate_NoCapacity_KeepsCapacityAndWaitlist() {
+        session.setCapacity(1);
+        session.getUsers().add(user);
+        Session updatedSession = Session.builder().name("Updated Yoga Session").build();
 
-        verify(sessionRepository, times(1)).findById(1L);
-        verify(sessionRepository, times(1)).save(session);
-        assertFalse(session.getUsers().contains(user));
+        when(sessionRepository.findById(1L)).thenReturn(Optional.of(session));
+        when(sessionRepository.saveAndFlush(session)).thenReturn(session);
+
+        Session result = sessionService.update(1L, updatedSession);
+
+        assertEquals(1, result.getCapacity());
+        assertEquals(Collections.singletonList(user), result.getUsers());
+        verify(waitlistRepository, never()).findFirstBySessionIdOrderByIdAsc(anyLong());
+        verify(waitlistRepository, never()).delete(any(WaitlistEntry.class));
+    }
+
+    @Test
+    public void testUpdate_StaleVersion() {
+        session.setVersion(5L);
+        Session updatedSession = Session.builder().name("Updated Yoga Session").version(4L).build();
+        when(sessionRepository.findById(1L)).thenReturn(Optional.of(session));
+
+        assertThrows(ConflictException.class, () -> sessionService.update(1L, updatedSession));
+        verify(sessionRepository, never()).saveAndFlush(any(Session.class));
+    }
+
+    @Test
+    public void testUpdate_ConcurrentChange() {
+        Session updatedSession = Session.builder().name("Updated Yoga Session").build();
+        when(sessionRepository.findById(1L)).thenReturn(Optional.of(session));
+        when(sessionRepository.saveAndFlush(session)).thenThrow(new ObjectOptimisticLockingFailureException(Session.class, 1L));
+
+        assertThrows(ConflictException.class, () -> sessionService.update(1L, updatedSession));
+        verify(sessionCatalog, never()).invalidate();
+    }
+
+    @Test
+    public void testUpdate_UnknownSession() {
+        when(sessionRepository.findById(99L)).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class, () -> sessionService.update(99L, Session.builder().name("name").build()));
     }
 
+    @Test
+    public void testParticipate_DelegatesToCoordinator() {
+        when(signupCoordinator.participate(1L, 2L)).thenReturn(ParticipationStatus.WAITLISTED);
 
-}
\ No newline at end of file
+        assertEquals(ParticipationStatus.WAITLISTED, sessionService.participate(1L, 2L));
+        verify(sessionCatalog, times(1)).refresh(1L);
+        verify(sessionCatalog, never()).invalidate();
+    }
+
+    @Test
+    public void testNoLongerParticipate_DelegatesToCoordinator() {
+        sessionService.noLongerParticipate(1L, 2L);
+
+        verify(signupCoordinator, times(1)).noLongerParticipate(1L, 2L);
+        verify(sessionCatalog, times(1)).refresh(1L);
+    }
+
+    private SessionSummary summary(Long id) {
+        return new SessionSummary(id, "Session " + id, new Date(), "A session", 1L, null, 0L, null, null);
+    }
+
+    private ParticipantId participant(Long sessionId, Long userId) {
+        return new ParticipantId() {
+            @Override
+            public Long getSessionId() {
+                return sessionId;
+            }
+
+            @Override
+            public Long getUserId() {
+                return userId;
+            }
+        };
+    }
+}
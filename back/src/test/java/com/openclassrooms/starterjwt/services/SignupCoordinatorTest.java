@@ -0,0 +1,150 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.exception.ConflictException;
+import com.openclassrooms.starterjwt.exception.NotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SignupCoordinatorTest {
+
+    @Mock
+    private ParticipationWriter participationWriter;
+
+    @InjectMocks
+    private SignupCoordinator signupCoordinator;
+
+    @Test
+    void participate_ReturnsOutcomeOfWriter() {
+        when(participationWriter.participateAll(1L, Collections.singletonList(2L)))
+                .thenReturn(Collections.singletonList(ParticipationOutcome.of(ParticipationStatus.WAITLISTED)));
+
+        assertEquals(ParticipationStatus.WAITLISTED, signupCoordinator.participate(1L, 2L));
+        assertEquals(1, signupCoordinator.getBatchCount());
+    }
+
+    @Test
+    void bindTo_PublishesSignUpsAndBatches() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        signupCoordinator.bindTo(registry);
+        when(participationWriter.participateAll(1L, Collections.singletonList(2L)))
+                .thenReturn(Collections.singletonList(ParticipationOutcome.of(ParticipationStatus.PARTICIPATING)));
+
+        signupCoordinator.participate(1L, 2L);
+
+        assertEquals(1, registry.get("sessions.signups").functionCounter().count());
+        assertEquals(1, registry.get("sessions.signup.batches").functionCounter().count());
+    }
+
+    @Test
+    void participate_RethrowsFailureOfThisSignUp() {
+        when(participationWriter.participateAll(1L, Collections.singletonList(2L)))
+                .thenReturn(Collections.singletonList(ParticipationOutcome.failed(new BadRequestException())));
+
+        assertThrows(BadRequestException.class, () -> signupCoordinator.participate(1L, 2L));
+    }
+
+    @Test
+    void participate_WriterFailure_FailsTheSignUp() {
+        when(participationWriter.participateAll(99L, Collections.singletonList(2L))).thenThrow(new NotFoundException());
+
+        assertThrows(NotFoundException.class, () -> signupCoordinator.participate(99L, 2L));
+    }
+
+    @Test
+    void participate_ConcurrentSignUps_AreCombinedIntoFewerBatches() throws Exception {
+        int signUps = 64;
+        CountDownLatch firstBatchStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+        when(participationWriter.participateAll(eq(1L), any())).thenAnswer(invocation -> {
+            List<Long> userIds = invocation.getArgument(1);
+            if (firstBatchStarted.getCount() > 0) {
+                firstBatchStarted.countDown();
+                releaseFirstBatch.await(10, TimeUnit.SECONDS);
+            }
+            List<ParticipationOutcome> outcomes = new ArrayList<>();
+            userIds.forEach(userId -> outcomes.add(ParticipationOutcome.of(ParticipationStatus.PARTICIPATING)));
+            return outcomes;
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(signUps);
+        try {
+            List<Future<ParticipationStatus>> futures = new ArrayList<>();
+            futures.add(executor.submit(() -> signupCoordinator.participate(1L, 0L)));
+            assertTrue(firstBatchStarted.await(10, TimeUnit.SECONDS));
+            for (long userId = 1; userId < signUps; userId++) {
+                long id = userId;
+                futures.add(executor.submit(() -> signupCoordinator.participate(1L, id)));
+            }
+            while (signupCoordinator.pendingSignUps(1L) < signUps - 1) {
+                Thread.sleep(10);
+            }
+            releaseFirstBatch.countDown();
+
+            for (Future<ParticipationStatus> future : futures) {
+                assertEquals(ParticipationStatus.PARTICIPATING, future.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(signUps, signupCoordinator.getSignUpCount());
+        assertEquals(2, signupCoordinator.getBatchCount());
+    }
+
+    @Test
+    void participate_ConcurrentChange_IsRetried() {
+        when(participationWriter.participateAll(1L, Collections.singletonList(2L)))
+                .thenThrow(new OptimisticLockingFailureException("changed"))
+                .thenReturn(Collections.singletonList(ParticipationOutcome.of(ParticipationStatus.PARTICIPATING)));
+
+        assertEquals(ParticipationStatus.PARTICIPATING, signupCoordinator.participate(1L, 2L));
+        verify(participationWriter, times(2)).participateAll(1L, Collections.singletonList(2L));
+    }
+
+    @Test
+    void participate_PersistentConflict_ThrowsConflict() {
+        when(participationWriter.participateAll(1L, Collections.singletonList(2L)))
+                .thenThrow(new OptimisticLockingFailureException("changed"));
+
+        assertThrows(ConflictException.class, () -> signupCoordinator.participate(1L, 2L));
+        verify(participationWriter, times(SignupCoordinator.MAX_ATTEMPTS)).participateAll(1L, Collections.singletonList(2L));
+    }
+
+    @Test
+    void noLongerParticipate_ConcurrentChange_IsRetried() {
+        doThrow(new OptimisticLockingFailureException("changed")).doNothing()
+                .when(participationWriter).noLongerParticipate(1L, 2L);
+
+        signupCoordinator.noLongerParticipate(1L, 2L);
+
+        verify(participationWriter, times(2)).noLongerParticipate(1L, 2L);
+    }
+
+    @Test
+    void noLongerParticipate_DelegatesToWriter() {
+        signupCoordinator.noLongerParticipate(1L, 2L);
+
+        verify(participationWriter, times(1)).noLongerParticipate(1L, 2L);
+    }
+}
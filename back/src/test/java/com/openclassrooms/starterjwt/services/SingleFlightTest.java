@@ -0,0 +1,98 @@
+package com.openclassrooms.starterjwt.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private static final int CALLERS = 8;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+
+    private final SingleFlight<Long, String> singleFlight = new SingleFlight<>();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void load_ConcurrentCallsForOneKey_ShareOneLoad() throws Exception {
+        AtomicInteger loaderCalls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(executor.submit(() -> singleFlight.load(1L, key -> {
+                loaderCalls.incrementAndGet();
+                await(release);
+                return "session " + key;
+            })));
+        }
+        waitForCoalescedCalls(CALLERS - 1);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertEquals("session 1", result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loaderCalls.get());
+        assertEquals(1, singleFlight.getLoadCount());
+        assertEquals(CALLERS - 1, singleFlight.getCoalescedCount());
+    }
+
+    @Test
+    void load_AfterCompletion_LoadsAgain() {
+        assertEquals("a", singleFlight.load(1L, key -> "a"));
+        assertEquals("b", singleFlight.load(1L, key -> "b"));
+
+        assertEquals(2, singleFlight.getLoadCount());
+        assertEquals(0, singleFlight.getCoalescedCount());
+    }
+
+    @Test
+    void load_FailedLoad_IsRethrownToEveryCaller() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> leader = executor.submit(() -> singleFlight.load(1L, key -> {
+            await(release);
+            throw new IllegalStateException("database down");
+        }));
+        while (singleFlight.getLoadCount() == 0) {
+            Thread.sleep(1);
+        }
+        Future<String> follower = executor.submit(() -> singleFlight.load(1L, key -> "unused"));
+        waitForCoalescedCalls(1);
+        release.countDown();
+
+        for (Future<String> result : List.of(leader, follower)) {
+            Exception e = assertThrows(Exception.class, () -> result.get(5, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertEquals("fresh", singleFlight.load(1L, key -> "fresh"));
+    }
+
+    private void waitForCoalescedCalls(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (singleFlight.getCoalescedCount() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
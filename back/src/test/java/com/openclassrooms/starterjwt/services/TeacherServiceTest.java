@@ -2,13 +2,14 @@ package com.openclassrooms.starterjwt.services;
 
 import com.openclassrooms.starterjwt.models.Teacher;
 import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import com.openclassrooms.starterjwt.repository.projection.CollectionVersion;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
@@ -22,7 +23,6 @@ public class TeacherServiceTest {
     @Mock
     private TeacherRepository teacherRepository;
 
-    @InjectMocks
     private TeacherService teacherService;
 
     private Teacher teacher1;
@@ -31,6 +31,8 @@ public class TeacherServiceTest {
 
     @BeforeEach
     public void setUp() {
+        teacherService = new TeacherService(teacherRepository, 60000, 100);
+
         teacher1 = Teacher.builder()
                 .id(1L)
                 .firstName("John")
@@ -81,4 +83,39 @@ public class TeacherServiceTest {
         assertNull(result);
         verify(teacherRepository, times(1)).findById(99L);
     }
+
+    @Test
+    public void testFindAll_IsServedFromMemoryAfterFirstLoad() {
+        teacher2.setUpdatedAt(LocalDateTime.of(2024, 1, 1, 10, 0));
+        when(teacherRepository.findAll()).thenReturn(teacherList);
+
+        teacherService.findAll();
+        List<Teacher> result = teacherService.findAll();
+
+        assertEquals(teacherList, result);
+        assertEquals(new CollectionVersion(2L, 2L, LocalDateTime.of(2024, 1, 1, 10, 0)), teacherService.getCollectionVersion());
+        assertSame(teacher1, teacherService.findById(1L));
+        verify(teacherRepository, times(1)).findAll();
+        verify(teacherRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    public void testFindById_IsCachedUntilEvicted() {
+        when(teacherRepository.findById(1L)).thenReturn(Optional.of(teacher1));
+
+        teacherService.findById(1L);
+        teacherService.findById(1L);
+        teacherService.evictAll();
+        teacherService.findById(1L);
+
+        verify(teacherRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    public void testFindById_UnknownIdIsNotCached() {
+        when(teacherRepository.findById(3L)).thenReturn(Optional.empty(), Optional.of(teacher1));
+
+        assertNull(teacherService.findById(3L));
+        assertSame(teacher1, teacherService.findById(3L));
+    }
 }
\ No newline at end of file
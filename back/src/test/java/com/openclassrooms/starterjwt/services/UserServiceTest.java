@@ -1,17 +1,29 @@
 package com.openclassrooms.starterjwt.services;
 
+import com.openclassrooms.starterjwt.exception.BadRequestException;
 import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.repository.WaitlistRepository;
+import com.openclassrooms.starterjwt.security.jwt.TokenRevocationList;
+import com.openclassrooms.starterjwt.security.services.UserDetailsCache;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -20,6 +32,15 @@ public class UserServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private WaitlistRepository waitlistRepository;
+
+    @Mock
+    private UserDetailsCache userDetailsCache;
+
+    @Mock
+    private TokenRevocationList tokenRevocationList;
+
     @InjectMocks
     private UserService userService;
 
@@ -41,7 +62,28 @@ public class UserServiceTest {
 
         userService.delete(1L);
 
-        verify(userRepository, times(1)).deleteById(1L);
+        InOrder inOrder = inOrder(waitlistRepository, userRepository);
+        inOrder.verify(waitlistRepository, times(1)).deleteByUserId(1L);
+        inOrder.verify(userRepository, times(1)).deleteById(1L);
+        verify(userDetailsCache, times(1)).evictById(1L);
+        verify(tokenRevocationList, times(1)).revoke(1L);
+    }
+
+    @Test
+    public void testDelete_InTransaction_EvictsAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            userService.delete(1L);
+
+            verify(userRepository, times(1)).deleteById(1L);
+            verify(userDetailsCache, never()).evictById(anyLong());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(userDetailsCache, times(1)).evictById(1L);
     }
 
     @Test
@@ -69,4 +111,36 @@ public class UserServiceTest {
         assertNull(result);
         verify(userRepository, times(1)).findById(99L);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testFindAllById_AllFound() {
+        User other = User.builder()
+                .id(2L)
+                .email("other@test.com")
+                .firstName("Jane")
+                .lastName("Doe")
+                .password("password123")
+                .build();
+        when(userRepository.findAllById(new LinkedHashSet<>(Arrays.asList(1L, 2L)))).thenReturn(Arrays.asList(other, user));
+
+        Map<Long, User> result = userService.findAllById(Arrays.asList(1L, 2L, 1L));
+
+        assertEquals(2, result.size());
+        assertSame(user, result.get(1L));
+        assertSame(other, result.get(2L));
+        verify(userRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    public void testFindAllById_UnknownId() {
+        when(userRepository.findAllById(new LinkedHashSet<>(Arrays.asList(1L, 99L)))).thenReturn(Collections.singletonList(user));
+
+        assertThrows(BadRequestException.class, () -> userService.findAllById(Arrays.asList(1L, 99L)));
+    }
+
+    @Test
+    public void testFindAllById_Empty() {
+        assertTrue(userService.findAllById(Collections.emptyList()).isEmpty());
+        verifyNoInteractions(userRepository);
+    }
+}
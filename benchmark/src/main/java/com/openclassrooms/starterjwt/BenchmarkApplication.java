@@ -0,0 +1,33 @@
+package com.openclassrooms.starterjwt;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Starts the app context against an in-memory H2 database instead of MySQL.
+ */
+public final class BenchmarkApplication {
+    private BenchmarkApplication() {
+    }
+
+    public static ConfigurableApplicationContext start(String database, String... args) {
+        // Command-line arguments, so they win over the MySQL settings of application.properties
+        List<String> arguments = new ArrayList<>(Arrays.asList(
+                "--server.port=0",
+                "--management.server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=60000",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=WARN"));
+        arguments.addAll(Arrays.asList(args));
+        return new SpringApplicationBuilder(SpringBootSecurityJwtApplication.class)
+                .run(arguments.toArray(new String[0]));
+    }
+}
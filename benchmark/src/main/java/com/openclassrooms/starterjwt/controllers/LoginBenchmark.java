@@ -0,0 +1,105 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import com.openclassrooms.starterjwt.BenchmarkApplication;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.payload.request.LoginRequest;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.security.services.UserDetailsCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One {@code POST /api/auth/login} through {@link AuthController}: the user
+ * lookup, the BCrypt check on the password hashing pool, and the token
+ * signature. The BCrypt cost dominates; compare {@code bcryptStrength}
+ * values to see what a change of {@code oc.app.bcryptStrength} costs at login.
+ * {@code userLookup} sets how many times the user is read: {@code cached}
+ * finds it in {@link UserDetailsCache}, {@code uncached} evicts it before
+ * each login so it is read once, and {@code duplicate} also repeats the
+ * controller's own {@code findByEmail} that logins made before the admin flag
+ * was read from the principal. Run it at a low strength to see the lookups
+ * next to BCrypt.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(3)
+public class LoginBenchmark {
+    private static final String PASSWORD = "test!1234";
+
+    @Param({"10", "12"})
+    private int bcryptStrength;
+
+    @Param({"cached", "uncached", "duplicate"})
+    private String userLookup;
+
+    private ConfigurableApplicationContext context;
+
+    private AuthController authController;
+
+    private UserRepository userRepository;
+
+    private UserDetailsCache userDetailsCache;
+
+    private LoginRequest loginRequest;
+
+    @Setup(Level.Trial)
+    public void startContext() {
+        context = BenchmarkApplication.start("login", "--oc.app.bcryptStrength=" + bcryptStrength);
+        authController = context.getBean(AuthController.class);
+        userRepository = context.getBean(UserRepository.class);
+        userDetailsCache = context.getBean(UserDetailsCache.class);
+
+        String encoded = context.getBean(PasswordEncoder.class).encode(PASSWORD);
+        User user = userRepository
+                .save(new User("yoga@studio.com", "Admin", "Admin", encoded, false));
+
+        loginRequest = new LoginRequest();
+        loginRequest.setEmail(user.getEmail());
+        loginRequest.setPassword(PASSWORD);
+    }
+
+    @Setup(Level.Invocation)
+    public void evictUserDetails() {
+        if (!userLookup.equals("cached")) {
+            userDetailsCache.evict(loginRequest.getEmail());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopContext() {
+        context.close();
+    }
+
+    @Benchmark
+    public ResponseEntity<?> login() {
+        try {
+            ResponseEntity<?> response = authController.authenticateUser(loginRequest);
+            if (userLookup.equals("duplicate")) {
+                userRepository.findByEmail(loginRequest.getEmail());
+            }
+            return response;
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import com.openclassrooms.starterjwt.BenchmarkApplication;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.security.services.UserDetailsCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The USERS reads of one login, without the BCrypt check that hides them in
+ * {@link LoginBenchmark}: {@code cached} finds the user in
+ * {@link UserDetailsCache}, {@code uncached} reads it once, as login does
+ * now, and {@code duplicate} reads it a second time with the
+ * {@code findByEmail} that {@link AuthController} ran before the admin flag
+ * was read from the principal. The cache eviction is part of every
+ * {@code uncached} and {@code duplicate} operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(3)
+public class LoginLookupBenchmark {
+    private static final String EMAIL = "yoga@studio.com";
+
+    @Param({"cached", "uncached", "duplicate"})
+    private String userLookup;
+
+    private ConfigurableApplicationContext context;
+
+    private UserDetailsService userDetailsService;
+
+    private UserRepository userRepository;
+
+    private UserDetailsCache userDetailsCache;
+
+    @Setup(Level.Trial)
+    public void startContext() {
+        context = BenchmarkApplication.start("lookup");
+        userDetailsService = context.getBean(UserDetailsService.class);
+        userRepository = context.getBean(UserRepository.class);
+        userDetailsCache = context.getBean(UserDetailsCache.class);
+
+        userRepository.save(new User(EMAIL, "Admin", "Admin", "password", false));
+    }
+
+    @TearDown(Level.Trial)
+    public void stopContext() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object lookup() {
+        if (!userLookup.equals("cached")) {
+            userDetailsCache.evict(EMAIL);
+        }
+        UserDetails userDetails = userDetailsService.loadUserByUsername(EMAIL);
+        if (userLookup.equals("duplicate")) {
+            return userRepository.findByEmail(EMAIL);
+        }
+        return userDetails;
+    }
+}
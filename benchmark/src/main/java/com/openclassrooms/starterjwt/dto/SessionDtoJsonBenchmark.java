@@ -0,0 +1,86 @@
+package com.openclassrooms.starterjwt.dto;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.openclassrooms.starterjwt.BenchmarkApplication;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON of {@code size} sessions with the app's {@link ObjectMapper}, as
+ * written by {@code GET /api/session} and read by the bulk import.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SessionDtoJsonBenchmark {
+    @Param({"10", "100", "1000", "10000"})
+    private int size;
+
+    private ConfigurableApplicationContext context;
+
+    private ObjectWriter writer;
+
+    private ObjectReader reader;
+
+    private byte[] json;
+
+    private List<SessionDto> sessionDtos;
+
+    @Setup(Level.Trial)
+    public void startContext() throws IOException {
+        context = BenchmarkApplication.start("json");
+        ObjectMapper objectMapper = context.getBean(ObjectMapper.class);
+        TypeReference<List<SessionDto>> listType = new TypeReference<List<SessionDto>>() {
+        };
+        writer = objectMapper.writerFor(listType);
+        reader = objectMapper.readerFor(listType);
+
+        LocalDateTime now = LocalDateTime.now();
+        sessionDtos = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            sessionDtos.add(new SessionDto((long) i + 1, "Session " + i, new Date(), 1L,
+                    "A one hour vinyasa flow for all levels", 20, List.of(1L, 2L, 3L, 4L, 5L), 0L, now, now));
+        }
+        json = writer.writeValueAsBytes(sessionDtos);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopContext() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return writer.writeValueAsBytes(sessionDtos);
+    }
+
+    @Benchmark
+    public List<SessionDto> deserialize() throws IOException {
+        return reader.readValue(json);
+    }
+}
@@ -0,0 +1,122 @@
+package com.openclassrooms.starterjwt.mapper;
+
+import com.openclassrooms.starterjwt.BenchmarkApplication;
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.services.UserService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * {@link SessionMapper} on lists of {@code size} sessions, each with a
+ * teacher and {@value #PARTICIPANTS} participants. {@code toEntity} includes
+ * the one H2 query that loads the participants and the cached teacher
+ * lookup, as on an import or update; {@code findParticipants} runs that query
+ * alone, so the mapping itself is the difference between the two.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(value = 3, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class SessionMapperBenchmark {
+    static final int USERS = 50;
+
+    static final int PARTICIPANTS = 5;
+
+    @Param({"10", "100", "1000", "10000"})
+    private int size;
+
+    private ConfigurableApplicationContext context;
+
+    private SessionMapper sessionMapper;
+
+    private UserService userService;
+
+    private List<Session> sessions;
+
+    private List<SessionDto> sessionDtos;
+
+    private List<Long> participantIds;
+
+    @Setup(Level.Trial)
+    public void startContext() {
+        context = BenchmarkApplication.start("mapper");
+        sessionMapper = context.getBean(SessionMapper.class);
+        userService = context.getBean(UserService.class);
+
+        Teacher teacher = context.getBean(TeacherRepository.class)
+                .save(Teacher.builder().firstName("Margot").lastName("Delahaye").build());
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            users.add(userRepository.save(new User("user" + i + "@test.com", "Doe", "John", "password", false)));
+        }
+
+        sessions = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            List<User> participants = new ArrayList<>();
+            for (int j = 0; j < PARTICIPANTS; j++) {
+                participants.add(users.get((i + j) % USERS));
+            }
+            sessions.add(Session.builder()
+                    .id((long) i + 1)
+                    .name("Session " + i)
+                    .description("A one hour vinyasa flow for all levels")
+                    .date(new Date())
+                    .capacity(20)
+                    .teacher(teacher)
+                    .users(participants)
+                    .version(0L)
+                    .build());
+        }
+        sessionDtos = sessionMapper.toDto(sessions);
+        participantIds = sessionDtos.stream()
+                .flatMap(sessionDto -> sessionDto.getUsers().stream())
+                .collect(Collectors.toList());
+    }
+
+    @TearDown(Level.Trial)
+    public void stopContext() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<SessionDto> toDto() {
+        return sessionMapper.toDto(sessions);
+    }
+
+    @Benchmark
+    public List<Session> toEntity() {
+        return sessionMapper.toEntity(sessionDtos);
+    }
+
+    @Benchmark
+    public Map<Long, User> findParticipants() {
+        return userService.findAllById(participantIds);
+    }
+}
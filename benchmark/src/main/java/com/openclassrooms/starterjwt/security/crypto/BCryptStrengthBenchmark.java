@@ -0,0 +1,52 @@
+package com.openclassrooms.starterjwt.security.crypto;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+/**
+ * Cost of one BCrypt hash and one verification per strength, to pick
+ * {@code oc.app.bcryptStrength} (or check the calibrated value) for the
+ * hardware the app runs on.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class BCryptStrengthBenchmark {
+  @Param({"8", "10", "12", "14"})
+  private int strength;
+
+  private BCryptPasswordEncoder encoder;
+
+  private String hash;
+
+  @Setup
+  public void setUp() {
+    encoder = new BCryptPasswordEncoder(strength);
+    hash = encoder.encode("test!1234");
+  }
+
+  @Benchmark
+  public String encode() {
+    return encoder.encode("test!1234");
+  }
+
+  @Benchmark
+  public boolean matches() {
+    return encoder.matches("test!1234", hash);
+  }
+}
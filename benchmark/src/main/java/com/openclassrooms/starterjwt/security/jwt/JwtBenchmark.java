@@ -0,0 +1,99 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+
+/**
+ * Per-request JWT work: signing a token at login, verifying one on every
+ * authenticated request, and extracting it from the Authorization header.
+ * Only {@link JwtUtils} is in the context, with the secret and expiry of
+ * application.properties.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtBenchmark {
+  private AnnotationConfigApplicationContext context;
+
+  private JwtUtils jwtUtils;
+
+  private AuthTokenFilter authTokenFilter;
+
+  private Authentication authentication;
+
+  private String token;
+
+  private MockHttpServletRequest request;
+
+  @Setup
+  public void setUp() {
+    context = new AnnotationConfigApplicationContext();
+    context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("jwt",
+        Map.of("oc.app.jwtSecret", "openclassrooms", "oc.app.jwtExpirationMs", "86400000")));
+    context.register(JwtUtils.class);
+    context.refresh();
+    jwtUtils = context.getBean(JwtUtils.class);
+    authTokenFilter = new AuthTokenFilter();
+
+    UserDetailsImpl userDetails = UserDetailsImpl.builder()
+        .id(1L)
+        .username("yoga@studio.com")
+        .firstName("Admin")
+        .lastName("Admin")
+        .admin(true)
+        .password("unused")
+        .build();
+    authentication = new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+    token = jwtUtils.generateJwtToken(authentication);
+
+    request = new MockHttpServletRequest("GET", "/api/session");
+    request.addHeader("Authorization", "Bearer " + token);
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public String generateJwtToken() {
+    return jwtUtils.generateJwtToken(authentication);
+  }
+
+  @Benchmark
+  public boolean validateJwtToken() {
+    return jwtUtils.validateJwtToken(token);
+  }
+
+  @Benchmark
+  public VerifiedJwt parseJwtToken() {
+    return jwtUtils.parseJwtToken(token);
+  }
+
+  @Benchmark
+  public String parseJwt() {
+    return authTokenFilter.parseJwt(request);
+  }
+}
@@ -0,0 +1,134 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.BenchmarkApplication;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.dao.ConcurrencyFailureException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Sign-up then cancellation cycles by 16 threads on one hot session, against
+ * the app context backed by an in-memory H2 database. {@code direct} writes
+ * every sign-up in its own transaction, as before {@link SignupCoordinator};
+ * {@code coordinated} goes through the coordinator, which combines concurrent
+ * sign-ups into one transaction. {@code direct} retries the writes that lose
+ * the session's version check, or a lock, to another thread, as the
+ * coordinator does, so every cycle completes and conflicts cost retries.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 3)
+@Measurement(iterations = 10, time = 5)
+@Threads(HotSessionSignupBenchmark.THREADS)
+@Fork(3)
+public class HotSessionSignupBenchmark {
+    static final int THREADS = 16;
+
+    @Param({"direct", "coordinated"})
+    private String mode;
+
+    private ConfigurableApplicationContext context;
+
+    private ParticipationWriter participationWriter;
+
+    private SignupCoordinator signupCoordinator;
+
+    private Long sessionId;
+
+    private List<Long> userIds;
+
+    private final AtomicInteger nextUser = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void startContext() {
+        context = BenchmarkApplication.start("benchmark",
+                "--spring.datasource.hikari.maximum-pool-size=" + (THREADS * 2));
+        participationWriter = context.getBean(ParticipationWriter.class);
+        signupCoordinator = context.getBean(SignupCoordinator.class);
+
+        Teacher teacher = context.getBean(TeacherRepository.class)
+                .save(Teacher.builder().firstName("Margot").lastName("Delahaye").build());
+        sessionId = context.getBean(SessionRepository.class).save(Session.builder()
+                .name("Hot session")
+                .description("description")
+                .date(new Date())
+                .teacher(teacher)
+                .users(new ArrayList<>())
+                .build()).getId();
+
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        userIds = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            userIds.add(userRepository.save(new User("user" + i + "@test.com", "Doe", "John", "password", false)).getId());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopContext() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Participant {
+        private Long userId;
+
+        @Setup(Level.Trial)
+        public void pickUser(HotSessionSignupBenchmark benchmark) {
+            userId = benchmark.userIds.get(benchmark.nextUser.getAndIncrement() % THREADS);
+        }
+    }
+
+    @Benchmark
+    public ParticipationStatus signUpAndCancel(Participant participant) {
+        ParticipationStatus status;
+        if ("coordinated".equals(mode)) {
+            status = signupCoordinator.participate(sessionId, participant.userId);
+            signupCoordinator.noLongerParticipate(sessionId, participant.userId);
+        } else {
+            status = retryOnConflict(() -> participationWriter
+                    .participateAll(sessionId, Collections.singletonList(participant.userId)).get(0).get());
+            retryOnConflict(() -> {
+                participationWriter.noLongerParticipate(sessionId, participant.userId);
+                return null;
+            });
+        }
+        return status;
+    }
+
+    private static <T> T retryOnConflict(Supplier<T> write) {
+        while (true) {
+            try {
+                return write.get();
+            } catch (ConcurrencyFailureException e) {
+                // Lost the version check, or was the deadlock victim, to another thread; one of them always wins
+            }
+        }
+    }
+}
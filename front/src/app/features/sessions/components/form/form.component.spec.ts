@@ -16,6 +16,8 @@ import { SessionApiService } from '../../services/session-api.service';
 import { FormComponent } from './form.component';
 import { Router } from '@angular/router';
 import { SessionInformation } from 'src/app/interfaces/sessionInformation.interface';
+import { of } from 'rxjs';
+import { Session } from '../../interfaces/session.interface';
 
 describe('FormComponent', () => {
   let component: FormComponent;
@@ -66,4 +68,27 @@ describe('FormComponent', () => {
   it('should create', () => {
     expect(component).toBeTruthy();
   });
+
+  it('should send the version of the loaded session on update', () => {
+    const session: Session = {
+      id: 1,
+      name: 'Yoga',
+      description: 'A relaxing session',
+      date: new Date('2024-01-01'),
+      teacher_id: 1,
+      users: [],
+      version: 3,
+    };
+    const router = TestBed.inject(Router);
+    const sessionApiService = TestBed.inject(SessionApiService);
+    jest.spyOn(router, 'url', 'get').mockReturnValue('/sessions/update/1');
+    jest.spyOn(router, 'navigate').mockResolvedValue(true);
+    jest.spyOn(sessionApiService, 'detail').mockReturnValue(of(session));
+    const update = jest.spyOn(sessionApiService, 'update').mockReturnValue(of(session));
+
+    component.ngOnInit();
+    component.submit();
+
+    expect(update).toHaveBeenCalledWith(expect.anything(), expect.objectContaining({ version: 3 }));
+  });
 });
@@ -1,3 +1,4 @@
+import { HttpErrorResponse } from '@angular/common/http';
 import { Component, OnInit } from '@angular/core';
 import { FormBuilder, FormGroup, Validators } from '@angular/forms';
 import { MatSnackBar } from '@angular/material/snack-bar';
@@ -18,6 +19,7 @@ export class FormComponent implements OnInit {
   public sessionForm: FormGroup | undefined;
   public teachers$ = this.teacherService.all();
   private id: string | undefined;
+  private version: number | undefined;
 
   constructor(
     private route: ActivatedRoute,
@@ -55,12 +57,20 @@ export class FormComponent implements OnInit {
         .subscribe((_: Session) => this.exitPage('Session created !'));
     } else {
       this.sessionApiService
-        .update(this.id!, session)
-        .subscribe((_: Session) => this.exitPage('Session updated !'));
+        .update(this.id!, { ...session, version: this.version })
+        .subscribe({
+          next: (_: Session) => this.exitPage('Session updated !'),
+          error: (error: HttpErrorResponse) => {
+            if (error.status === 409) {
+              this.matSnackBar.open('Session was changed by someone else, reload it to edit', 'Close', { duration: 3000 });
+            }
+          }
+        });
     }
   }
 
   private initForm(session?: Session): void {
+    this.version = session?.version;
     this.sessionForm = this.fb.group({
       name: [
         session ? session.name : '',
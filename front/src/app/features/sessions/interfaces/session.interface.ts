@@ -5,6 +5,7 @@ export interface Session {
   date: Date;
   teacher_id: number;
   users: number[];
+  version?: number;
   createdAt?: Date;
   updatedAt?: Date;
 }